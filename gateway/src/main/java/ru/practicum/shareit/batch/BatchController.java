@@ -0,0 +1,28 @@
+package ru.practicum.shareit.batch;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Controller;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.batch.dto.SubRequestDto;
+import ru.practicum.shareit.batch.dto.SubResponseDto;
+
+import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import java.util.List;
+
+@Controller
+@RequestMapping("/batch")
+@RequiredArgsConstructor
+@Validated
+public class BatchController {
+    private final BatchExecutor batchExecutor;
+
+    @PostMapping
+    @ResponseBody
+    public Mono<List<SubResponseDto>> execute(@RequestHeader("X-Sharer-User-Id") @Positive long userId,
+                                              @RequestBody List<@Valid SubRequestDto> requests) {
+        return batchExecutor.execute(userId, requests);
+    }
+}
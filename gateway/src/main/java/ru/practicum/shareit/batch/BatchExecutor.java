@@ -0,0 +1,225 @@
+package ru.practicum.shareit.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+import org.springframework.web.util.UriUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.batch.dto.SubRequestDto;
+import ru.practicum.shareit.batch.dto.SubResponseDto;
+import ru.practicum.shareit.booking.BookingClient;
+import ru.practicum.shareit.booking.dto.BookingState;
+import ru.practicum.shareit.error.ErrorResponse;
+import ru.practicum.shareit.error.ResponseTooLargeException;
+import ru.practicum.shareit.item.ItemClient;
+import ru.practicum.shareit.ratelimit.RateLimitExceededException;
+import ru.practicum.shareit.ratelimit.RateLimiter;
+import ru.practicum.shareit.request.ItemRequestClient;
+import ru.practicum.shareit.user.UserClient;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static java.lang.String.format;
+
+/**
+ * Выполняет подзапросы пакета параллельно через клиенты шлюза, поэтому к ним применяются кэш ответов,
+ * объединение одинаковых запросов и автоматические выключатели. Каждый подзапрос расходует токен из бакета
+ * своего адреса, как отдельный запрос. Одновременно выполняется не больше maxConcurrency подзапросов;
+ * результаты возвращаются в порядке подзапросов.
+ */
+@Service
+public class BatchExecutor {
+    private final UserClient userClient;
+    private final ItemClient itemClient;
+    private final BookingClient bookingClient;
+    private final ItemRequestClient requestClient;
+    private final RateLimiter rateLimiter;
+    private final ObjectMapper objectMapper;
+    private final int maxRequests;
+    private final int maxConcurrency;
+
+    public BatchExecutor(UserClient userClient, ItemClient itemClient, BookingClient bookingClient,
+                         ItemRequestClient requestClient, RateLimiter rateLimiter, ObjectMapper objectMapper,
+                         @Value("${shareit.batch.max-requests:10}") int maxRequests,
+                         @Value("${shareit.batch.max-concurrency:4}") int maxConcurrency) {
+        this.userClient = userClient;
+        this.itemClient = itemClient;
+        this.bookingClient = bookingClient;
+        this.requestClient = requestClient;
+        this.rateLimiter = rateLimiter;
+        this.objectMapper = objectMapper;
+        this.maxRequests = maxRequests;
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    public Mono<List<SubResponseDto>> execute(long userId, List<SubRequestDto> requests) {
+        if (requests.isEmpty() || requests.size() > maxRequests) {
+            throw new IllegalArgumentException(format("В пакете должно быть от 1 до %s подзапросов.", maxRequests));
+        }
+        return Flux.range(0, requests.size())
+                .flatMapSequential(index -> execute(userId, index, requests.get(index)), maxConcurrency)
+                .collectList();
+    }
+
+    private Mono<SubResponseDto> execute(long userId, int index, SubRequestDto request) {
+        String id = request.getId() != null ? request.getId() : String.valueOf(index);
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return Mono.defer(() -> route(userId, request.getPath()))
+                    .map(response -> new SubResponseDto(id, response.getStatusCodeValue(), elapsedMs(start),
+                            toJson(response.getBody())))
+                    .onErrorResume(e -> Mono.just(new SubResponseDto(id, statusOf(e).value(), elapsedMs(start),
+                            toJson(new ErrorResponse(e.getMessage())))));
+        });
+    }
+
+    private Mono<ResponseEntity<Object>> route(long userId, String path) {
+        UriComponents uri = UriComponentsBuilder.fromUriString(path).build();
+        rateLimiter.acquire(RateLimiter.userClient(String.valueOf(userId)), uri.getPath() != null ? uri.getPath() : "");
+        List<String> segments = uri.getPathSegments();
+        MultiValueMap<String, String> query = uri.getQueryParams();
+        String resource = segments.isEmpty() ? "" : segments.get(0);
+        String second = segments.size() > 1 ? segments.get(1) : null;
+        if (segments.size() > 2) {
+            throw unsupported(path);
+        }
+        switch (resource) {
+            case "users":
+                if (second == null) {
+                    // Как и GET /users, без size список пользователей возвращается целиком.
+                    return userClient.findUsers(from(query), size(query, null), param(query, "after"));
+                }
+                return userClient.findUserById(id(second));
+            case "items":
+                if (second == null) {
+                    return itemClient.getItems(userId, from(query), size(query), param(query, "after"));
+                } else if (second.equals("search")) {
+                    String text = param(query, "text");
+                    if (text == null) {
+                        throw new IllegalArgumentException("Не указан текст поиска.");
+                    }
+                    return itemClient.findItemsByText(userId, text, from(query), size(query));
+                }
+                return itemClient.findItemById(userId, id(second), null);
+            case "bookings":
+                if (second == null) {
+                    return bookingClient.getBookings(userId, state(query), from(query), size(query),
+                            param(query, "after"));
+                } else if (second.equals("owner")) {
+                    return bookingClient.getBookingsForOwnersItems(userId, state(query), from(query), size(query),
+                            param(query, "after"));
+                }
+                return bookingClient.getBooking(userId, id(second), null);
+            case "requests":
+                if (second == null) {
+                    return requestClient.findRequestsByUserId(userId);
+                } else if (second.equals("all")) {
+                    return requestClient.findAllRequests(userId, from(query), size(query), param(query, "after"));
+                }
+                return requestClient.findRequestById(userId, id(second), null);
+            default:
+                throw unsupported(path);
+        }
+    }
+
+    private static String param(MultiValueMap<String, String> query, String name) {
+        String value = query.getFirst(name);
+        return value != null ? UriUtils.decode(value, StandardCharsets.UTF_8) : null;
+    }
+
+    private static Integer from(MultiValueMap<String, String> query) {
+        int from = number(query, "from", 0);
+        if (from < 0) {
+            throw new IllegalArgumentException("Параметр from не должен быть отрицательным.");
+        }
+        return from;
+    }
+
+    private static Integer size(MultiValueMap<String, String> query) {
+        return size(query, 10);
+    }
+
+    private static Integer size(MultiValueMap<String, String> query, Integer defaultSize) {
+        if (param(query, "size") == null) {
+            return defaultSize;
+        }
+        int size = number(query, "size", 0);
+        if (size <= 0) {
+            throw new IllegalArgumentException("Параметр size должен быть положительным.");
+        }
+        return size;
+    }
+
+    private static int number(MultiValueMap<String, String> query, String name, int defaultValue) {
+        String value = param(query, name);
+        try {
+            return value != null ? Integer.parseInt(value) : defaultValue;
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("Параметр %s должен быть числом.", name));
+        }
+    }
+
+    private static BookingState state(MultiValueMap<String, String> query) {
+        String state = param(query, "state");
+        String stateParam = state != null ? state : "all";
+        return BookingState.from(stateParam)
+                .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
+    }
+
+    private static long id(String segment) {
+        try {
+            return Long.parseLong(segment);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException(format("Некорректный id \"%s\".", segment));
+        }
+    }
+
+    private static IllegalArgumentException unsupported(String path) {
+        return new IllegalArgumentException(format("Адрес %s не поддерживается в пакете.", path));
+    }
+
+    private static HttpStatus statusOf(Throwable e) {
+        if (e instanceof IllegalArgumentException) {
+            return HttpStatus.BAD_REQUEST;
+        } else if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+            return HttpStatus.SERVICE_UNAVAILABLE;
+        } else if (e instanceof RateLimitExceededException) {
+            return HttpStatus.TOO_MANY_REQUESTS;
+        } else if (e instanceof ResponseTooLargeException) {
+            return HttpStatus.BAD_GATEWAY;
+        }
+        return HttpStatus.INTERNAL_SERVER_ERROR;
+    }
+
+    /**
+     * Ответы на чтение приходят от сервера готовым JSON и вставляются в ответ пакета без разбора.
+     */
+    private String toJson(Object body) {
+        if (body == null) {
+            return null;
+        } else if (body instanceof byte[]) {
+            byte[] bytes = (byte[]) body;
+            return bytes.length > 0 ? new String(bytes, StandardCharsets.UTF_8) : null;
+        }
+        try {
+            return objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static long elapsedMs(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
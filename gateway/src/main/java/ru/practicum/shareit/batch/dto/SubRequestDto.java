@@ -0,0 +1,20 @@
+package ru.practicum.shareit.batch.dto;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.validation.constraints.NotBlank;
+
+/**
+ * Подзапрос пакета: адрес шлюза для чтения вместе с параметрами, например /bookings/owner?state=ALL.
+ * id возвращается в ответе, чтобы клиент сопоставил результаты.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SubRequestDto {
+    private String id;
+    @NotBlank
+    private String path;
+}
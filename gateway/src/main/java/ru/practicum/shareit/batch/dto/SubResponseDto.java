@@ -0,0 +1,15 @@
+package ru.practicum.shareit.batch.dto;
+
+import com.fasterxml.jackson.annotation.JsonRawValue;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class SubResponseDto {
+    private String id;
+    private int status;
+    private long durationMs;
+    @JsonRawValue
+    private String body;
+}
@@ -2,59 +2,90 @@ package ru.practicum.shareit.booking;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
+import ru.practicum.shareit.item.ItemClient;
 
+import java.time.LocalDateTime;
 import java.util.Map;
 
 @Service
 public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
+    private final String serverUrl;
+    private final ResponseCache responseCache;
+
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                         ResponseCache responseCache, RequestCoalescer requestCoalescer,
+                         ServerCallGuard serverCallGuard) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .build(),
+                "bookings",
+                requestCoalescer,
+                serverCallGuard
         );
+        this.serverUrl = serverUrl;
+        this.responseCache = responseCache;
     }
 
-    public ResponseEntity<Object> getBookings(long userId, BookingState state, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getBookings(long userId, BookingState state, Integer from, Integer size, String after) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
                 "size", size
         );
-        return get("?state={state}&from={from}&size={size}", userId, parameters);
+        return get("?state={state}&from={from}&size={size}", userId, parameters, after);
     }
 
-    public ResponseEntity<Object> getBookingsForOwnersItems(long userId, BookingState state, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getBookingsForOwnersItems(long userId, BookingState state, Integer from, Integer size,
+                                                            String after) {
         Map<String, Object> parameters = Map.of(
                 "state", state.name(),
                 "from", from,
                 "size", size
         );
-        return get("/owner?state={state}&from={from}&size={size}", userId, parameters);
+        return get("/owner?state={state}&from={from}&size={size}", userId, parameters, after);
     }
 
-    public ResponseEntity<Object> bookItem(long userId, BookItemRequestDto requestDto) {
-        return post("", userId, requestDto);
+    public Mono<ResponseEntity<Object>> getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to) {
+        Map<String, Object> parameters = Map.of(
+                "itemId", itemId,
+                "from", from,
+                "to", to
+        );
+        // Свободные интервалы считаются по бронированиям, но адрес на сервере принадлежит вещи.
+        return get(serverUrl + "/items/{itemId}/availability?from={from}&to={to}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getBooking(long userId, Long bookingId) {
-        return get("/" + bookingId, userId);
+    public Mono<ResponseEntity<Object>> bookItem(long userId, BookItemRequestDto requestDto) {
+        return post("", userId, requestDto);
     }
 
-    public ResponseEntity<Object> patchBooking(long userId, Long bookingId, Boolean approved) {
-        return patch("/" + bookingId + "?approved=" + approved, userId);
+    public Mono<ResponseEntity<Object>> getBooking(long userId, Long bookingId, @Nullable String ifNoneMatch) {
+        return conditionalGet("/" + bookingId, userId, ifNoneMatch);
+    }
 
+    public Mono<ResponseEntity<Object>> patchBooking(long userId, Long bookingId, Boolean approved) {
+        // Решение владельца меняет последнее и следующее бронирование в ответе на запрос вещи.
+        return patch("/" + bookingId + "?approved=" + approved, userId).doOnNext(response -> {
+            Object itemId = bodyField(response, "item", "id");
+            if (itemId != null) {
+                responseCache.evict(ItemClient.itemPath(itemId));
+            }
+        });
     }
 }
@@ -2,10 +2,12 @@ package ru.practicum.shareit.booking;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.validation.BookingValidation;
@@ -24,46 +26,50 @@ public class BookingController {
     private final BookingValidation bookingValidation;
 
     @GetMapping
-    public ResponseEntity<Object> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
-                                              @RequestParam(name = "state", defaultValue = "all") String stateParam,
-                                              @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-                                              @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
+    public Mono<ResponseEntity<Object>> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                    @RequestParam(name = "state", defaultValue = "all") String stateParam,
+                                                    @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
+                                                    @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+                                                    @RequestParam(required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
         log.info("Get booking with state {}, userId={}, from={}, size={}", stateParam, userId, from, size);
-        return bookingClient.getBookings(userId, state, from, size);
+        return bookingClient.getBookings(userId, state, from, size, after);
     }
 
     @GetMapping("/owner")
-    public ResponseEntity<Object> getAllBookingsByItemOwnerId(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                                              @RequestParam(name = "state", defaultValue = "ALL") String stateParam,
-                                                              @PositiveOrZero @RequestParam(defaultValue = "0") Integer from,
-                                                              @Positive @RequestParam(defaultValue = "10") Integer size) {
+    public Mono<ResponseEntity<Object>> getAllBookingsByItemOwnerId(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                                    @RequestParam(name = "state", defaultValue = "ALL") String stateParam,
+                                                                    @PositiveOrZero @RequestParam(defaultValue = "0") Integer from,
+                                                                    @Positive @RequestParam(defaultValue = "10") Integer size,
+                                                                    @RequestParam(required = false) String after) {
         BookingState state = BookingState.from(stateParam)
                 .orElseThrow(() -> new IllegalArgumentException("Unknown state: " + stateParam));
         log.info("Get bookings by owner with userId={} for his items with state {}, from={}, size={}", userId, stateParam, from, size);
-        return bookingClient.getBookingsForOwnersItems(userId, state, from, size);
+        return bookingClient.getBookingsForOwnersItems(userId, state, from, size, after);
     }
 
     @GetMapping("/{bookingId}")
-    public ResponseEntity<Object> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
-                                             @PathVariable Long bookingId) {
+    public Mono<ResponseEntity<Object>> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                   @PathVariable Long bookingId,
+                                                   @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                   String ifNoneMatch) {
         log.info("Get booking {}, userId={}", bookingId, userId);
-        return bookingClient.getBooking(userId, bookingId);
+        return bookingClient.getBooking(userId, bookingId, ifNoneMatch);
     }
 
     @PostMapping
-    public ResponseEntity<Object> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
-                                           @RequestBody @Valid BookItemRequestDto requestDto) {
+    public Mono<ResponseEntity<Object>> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                 @RequestBody @Valid BookItemRequestDto requestDto) {
         bookingValidation.checkDate(requestDto);
         log.info("Creating booking {}, userId={}", requestDto, userId);
         return bookingClient.bookItem(userId, requestDto);
     }
 
     @PatchMapping("/{bookingId}")
-    public ResponseEntity<Object> patchBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
-                                               @PathVariable("bookingId") Long bookingId,
-                                               @RequestParam Boolean approved) {
+    public Mono<ResponseEntity<Object>> patchBooking(@RequestHeader("X-Sharer-User-Id") Long userId,
+                                                     @PathVariable("bookingId") Long bookingId,
+                                                     @RequestParam Boolean approved) {
         log.info("Patching booking {}, userId={}, approved={}", bookingId, userId, approved);
         return bookingClient.patchBooking(userId, bookingId, approved);
     }
@@ -1,100 +1,320 @@
 package ru.practicum.shareit.client;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
 import org.springframework.http.*;
+import org.springframework.http.client.reactive.ClientHttpRequest;
 import org.springframework.lang.Nullable;
-import org.springframework.web.client.HttpStatusCodeException;
-import org.springframework.web.client.RestTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.web.reactive.function.BodyInserters;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.http.client.HttpClientRequest;
+import ru.practicum.shareit.error.ResponseTooLargeException;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+/**
+ * Неблокирующий клиент сервера ShareIt. Методы возвращают Mono, поэтому контроллер отпускает поток Tomcat
+ * сразу после отправки запроса, а ответ приходит в потоках ввода-вывода WebClient.
+ */
 public class BaseClient {
-    protected final RestTemplate rest;
+    private static final int STREAM_BUFFER_SIZE = 8192;
+    private static final List<String> PASSTHROUGH_HEADERS = List.of(HttpHeaders.CONTENT_TYPE, HttpHeaders.ETAG,
+            HttpHeaders.LAST_MODIFIED, HttpHeaders.CACHE_CONTROL);
 
-    public BaseClient(RestTemplate rest) {
-        this.rest = rest;
+    protected final WebClient webClient;
+    private final String name;
+    private final RequestCoalescer requestCoalescer;
+    private final ServerCallGuard serverCallGuard;
+    private Duration streamResponseTimeout = Duration.ofMinutes(10);
+
+    public BaseClient(WebClient webClient, String name, RequestCoalescer requestCoalescer,
+                      ServerCallGuard serverCallGuard) {
+        this.webClient = webClient;
+        this.name = name;
+        this.requestCoalescer = requestCoalescer;
+        this.serverCallGuard = serverCallGuard;
+    }
+
+    /**
+     * Потоковые импорт и выгрузка длятся, пока передаётся тело, поэтому для них общий короткий таймаут ответа
+     * (shareit-server.client.response-timeout) заменяется на этот, только на время такого запроса.
+     */
+    @Autowired
+    public void setStreamResponseTimeout(
+            @Value("${shareit-server.client.stream-response-timeout:10m}") Duration streamResponseTimeout) {
+        this.streamResponseTimeout = streamResponseTimeout;
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    protected Mono<ResponseEntity<Object>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, long userId) {
+    protected Mono<ResponseEntity<Object>> get(String path, long userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
+    protected Mono<ResponseEntity<Object>> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
+        RequestKey key = new RequestKey(webClient, path, parameters, userId, null);
+        return requestCoalescer.coalesce(key, () -> makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null,
+                null));
     }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+    /**
+     * Чтение с If-None-Match клиента. Если ETag на сервере не изменился, сервер отвечает 304 без тела,
+     * и шлюз передаёт его клиенту как есть. Одинаковые запросы объединяются только с тем же If-None-Match.
+     */
+    protected Mono<ResponseEntity<Object>> conditionalGet(String path, long userId, @Nullable String ifNoneMatch) {
+        RequestKey key = new RequestKey(webClient, path, null, userId, ifNoneMatch);
+        return requestCoalescer.coalesce(key, () -> makeAndSendRequest(HttpMethod.GET, path, userId, null, null,
+                ifNoneMatch));
+    }
+
+    protected Mono<ResponseEntity<Object>> get(String path, Long userId, Map<String, Object> parameters,
+                                               @Nullable String after) {
+        if (after == null) {
+            return get(path, userId, parameters);
+        }
+        Map<String, Object> parametersWithCursor = new HashMap<>(parameters);
+        parametersWithCursor.put("after", after);
+        return get(path + (path.contains("?") ? "&" : "?") + "after={after}", userId, parametersWithCursor);
+    }
+
+    protected <T> Mono<ResponseEntity<Object>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> post(String path, long userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
+    protected <T> Mono<ResponseEntity<Object>> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+        return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body, null);
+    }
+
+    /**
+     * Потоковая отправка с потоковым ответом NDJSON: ни тело запроса, ни ответ целиком в памяти не держатся.
+     * Mono завершается, когда известен статус ответа сервера, поэтому ошибка сервера (например, 415) доходит
+     * до клиента со своим статусом и телом, а не обрывает уже начатый ответ 200. Строки NDJSON копируются
+     * клиенту при записи тела ответа.
+     */
+    protected Mono<ResponseEntity<StreamingResponseBody>> postStreamForNdjson(String path, @Nullable Long userId,
+                                                                              MediaType contentType,
+                                                                              InputStream body) {
+        return guard(webClient.post()
+                .uri(path)
+                .httpRequest(this::applyStreamResponseTimeout)
+                .headers(headers -> {
+                    headers.addAll(defaultHeaders(userId, MediaType.APPLICATION_NDJSON));
+                    headers.setContentType(contentType);
+                })
+                .body(BodyInserters.fromDataBuffers(readStream(body)))
+                .exchangeToFlux(BaseClient::toNdjsonSignals))
+                // Первый элемент — статус ответа, остальные — его тело; тело читается уже при записи ответа клиенту.
+                .switchOnFirst((first, signals) -> {
+                    ResponseEntity<?> head = (ResponseEntity<?>) first.get();
+                    if (head == null) {
+                        return signals.then(Mono.<ResponseEntity<StreamingResponseBody>>empty());
+                    }
+                    if (head.getStatusCode().isError()) {
+                        return signals.then(Mono.just(toErrorBody(head)));
+                    }
+                    Flux<DataBuffer> rows = signals.skip(1).cast(DataBuffer.class);
+                    return Mono.just(ResponseEntity.status(head.getStatusCode())
+                            .contentType(MediaType.APPLICATION_NDJSON)
+                            .<StreamingResponseBody>body(outputStream -> copy(rows, outputStream)));
+                }, false)
+                .single();
+    }
+
+    private static Flux<Object> toNdjsonSignals(ClientResponse response) {
+        if (response.statusCode().isError()) {
+            return toPassthroughResponse(response).cast(Object.class).flux();
+        }
+        return Flux.concat(Mono.just(ResponseEntity.status(response.statusCode()).build()),
+                response.bodyToFlux(DataBuffer.class));
+    }
+
+    private static ResponseEntity<StreamingResponseBody> toErrorBody(ResponseEntity<?> response) {
+        byte[] body = (byte[]) response.getBody();
+        return ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders())
+                .body(outputStream -> {
+                    if (body != null) {
+                        outputStream.write(body);
+                    }
+                });
+    }
+
+    private static Flux<DataBuffer> readStream(InputStream body) {
+        // Чтение из InputStream блокирующее, поэтому оно вынесено с потоков ввода-вывода WebClient.
+        return DataBufferUtils.readInputStream(() -> body, DefaultDataBufferFactory.sharedInstance,
+                STREAM_BUFFER_SIZE).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    protected void applyStreamResponseTimeout(ClientHttpRequest request) {
+        request.<HttpClientRequest>getNativeRequest().responseTimeout(streamResponseTimeout);
+    }
+
+    protected <T> Flux<T> guard(Flux<T> call) {
+        return serverCallGuard.guard(name, call);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
+    /**
+     * Копирует потоковый ответ сервера в выходной поток клиента. Вызывается из StreamingResponseBody,
+     * то есть в потоке асинхронного исполнителя MVC, а не в потоке ввода-вывода.
+     */
+    protected static void copy(Flux<DataBuffer> body, OutputStream outputStream) throws IOException {
+        for (DataBuffer buffer : body.toIterable()) {
+            try {
+                StreamUtils.copy(buffer.asInputStream(), outputStream);
+                outputStream.flush();
+            } finally {
+                DataBufferUtils.release(buffer);
+            }
+        }
+    }
+
+    protected <T> Mono<ResponseEntity<Object>> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
+    protected <T> Mono<ResponseEntity<Object>> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
+        return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, T body) {
         return patch(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, long userId) {
         return patch(path, userId, null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, long userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
-        return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+        return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body, null);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected Mono<ResponseEntity<Object>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, long userId) {
+    protected Mono<ResponseEntity<Object>> delete(String path, long userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
-        return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
+    protected Mono<ResponseEntity<Object>> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
+        return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null, null);
+    }
+
+    /**
+     * Значение вложенного поля из успешного JSON-ответа сервера, например id вещи в ответе на бронирование.
+     */
+    @Nullable
+    protected static Object bodyField(ResponseEntity<Object> response, String... names) {
+        if (!response.getStatusCode().is2xxSuccessful()) {
+            return null;
+        }
+        Object value = response.getBody();
+        for (String name : names) {
+            if (!(value instanceof Map)) {
+                return null;
+            }
+            value = ((Map<?, ?>) value).get(name);
+        }
+        return value;
+    }
+
+    private <T> Mono<ResponseEntity<Object>> makeAndSendRequest(HttpMethod method, String path, Long userId,
+                                                                @Nullable Map<String, Object> parameters,
+                                                                @Nullable T body, @Nullable String ifNoneMatch) {
+        WebClient.RequestBodySpec request = webClient.method(method)
+                .uri(path, parameters != null ? parameters : Map.of())
+                .headers(headers -> {
+                    headers.addAll(defaultHeaders(userId, MediaType.APPLICATION_JSON));
+                    if (ifNoneMatch != null) {
+                        headers.setIfNoneMatch(ifNoneMatch);
+                    }
+                });
+        WebClient.RequestHeadersSpec<?> requestWithBody = body != null ? request.bodyValue(body) : request;
+        return serverCallGuard.guard(name, requestWithBody.exchangeToMono(method == HttpMethod.GET
+                ? BaseClient::toPassthroughResponse
+                : BaseClient::toGatewayResponse));
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+    private static Mono<ResponseEntity<Object>> toGatewayResponse(ClientResponse response) {
+        if (response.statusCode().isError()) {
+            // Тело ошибки сервера передаётся клиенту без разбора, как есть.
+            return toPassthroughResponse(response);
+        }
+        // Разобранное тело шлюз сериализует заново, поэтому заголовки содержимого сервера к нему не относятся.
+        return response.toEntity(Object.class)
+                .map(entity -> new ResponseEntity<>(entity.getBody(), withoutContentHeaders(entity.getHeaders()),
+                        entity.getStatusCode()))
+                .map(BaseClient::prepareGatewayResponse);
+    }
+
+    private static HttpHeaders withoutContentHeaders(HttpHeaders serverHeaders) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.addAll(serverHeaders);
+        headers.remove(HttpHeaders.CONTENT_TYPE);
+        headers.remove(HttpHeaders.CONTENT_LENGTH);
+        headers.remove(HttpHeaders.TRANSFER_ENCODING);
+        return headers;
+    }
 
-        ResponseEntity<Object> shareitServerResponse;
-        try {
-            if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
-            } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
+    /**
+     * Тело ответа сервера передаётся клиенту байтами вместе с заголовками содержимого,
+     * без разбора JSON и повторной сериализации в шлюзе. Тело целиком держится в памяти (его делят объединённые
+     * запросы и кэш ответов), поэтому его размер ограничен spring.codec.max-in-memory-size; ответ больше
+     * этого предела превращается в ResponseTooLargeException.
+     */
+    private static Mono<ResponseEntity<Object>> toPassthroughResponse(ClientResponse response) {
+        HttpHeaders headers = new HttpHeaders();
+        for (String header : PASSTHROUGH_HEADERS) {
+            List<String> values = response.headers().header(header);
+            if (!values.isEmpty()) {
+                headers.addAll(header, values);
             }
-        } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
         }
-        return prepareGatewayResponse(shareitServerResponse);
+        return response.bodyToMono(byte[].class)
+                .onErrorMap(DataBufferLimitException.class, e -> new ResponseTooLargeException())
+                .map(body -> ResponseEntity.status(response.statusCode()).headers(headers).<Object>body(body))
+                .defaultIfEmpty(ResponseEntity.status(response.statusCode()).headers(headers).build())
+                .map(BaseClient::prepareGatewayResponse);
+    }
+
+    @lombok.Value
+    private static class RequestKey {
+        WebClient client;
+        String path;
+        Map<String, Object> parameters;
+        Long userId;
+        String ifNoneMatch;
     }
 
-    private HttpHeaders defaultHeaders(Long userId) {
+    private HttpHeaders defaultHeaders(Long userId, MediaType format) {
         HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-        headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+        headers.setContentType(format);
+        headers.setAccept(List.of(format));
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
@@ -106,7 +326,8 @@ public class BaseClient {
             return response;
         }
 
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode())
+                .headers(response.getHeaders());
 
         if (response.hasBody()) {
             return responseBuilder.body(response.getBody());
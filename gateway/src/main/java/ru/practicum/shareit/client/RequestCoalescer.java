@@ -0,0 +1,45 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Объединение одинаковых одновременных GET-запросов к серверу: пока запрос выполняется, такие же запросы
+ * не уходят на сервер, а получают его ответ. Число объединённых запросов публикуется
+ * как shareit.server.requests.coalesced.
+ */
+@Component
+public class RequestCoalescer {
+    private final Map<Object, Mono<ResponseEntity<Object>>> inFlight = new ConcurrentHashMap<>();
+    private final Counter coalesced;
+
+    public RequestCoalescer(MeterRegistry meterRegistry) {
+        this.coalesced = Counter.builder("shareit.server.requests.coalesced")
+                .description("Запросы, получившие ответ уже выполняющегося такого же запроса к серверу")
+                .register(meterRegistry);
+    }
+
+    public Mono<ResponseEntity<Object>> coalesce(Object key, Supplier<Mono<ResponseEntity<Object>>> exchange) {
+        return Mono.defer(() -> {
+            AtomicReference<Mono<ResponseEntity<Object>>> self = new AtomicReference<>();
+            Mono<ResponseEntity<Object>> shared = exchange.get()
+                    .doFinally(signal -> inFlight.remove(key, self.get()))
+                    .share();
+            self.set(shared);
+            Mono<ResponseEntity<Object>> existing = inFlight.putIfAbsent(key, shared);
+            if (existing != null) {
+                coalesced.increment();
+                return existing;
+            }
+            return shared;
+        });
+    }
+}
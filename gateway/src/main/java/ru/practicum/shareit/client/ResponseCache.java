@@ -0,0 +1,114 @@
+package ru.practicum.shareit.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Кэш успешных ответов сервера на чтение отдельных вещей, запросов и пользователей. Ключ — адрес на сервере
+ * и id пользователя, от которого зависит ответ. Клиенты сбрасывают записи после изменяющих запросов;
+ * ответ, загрузка которого пересеклась со сбросом, в кэш не кладётся. Ключи дополнительно разложены
+ * по адресам, поэтому сброс затрагивает только записи своего адреса (или адресов с общим префиксом),
+ * а не просматривает весь кэш.
+ */
+@Component
+public class ResponseCache {
+    private final Cache<Key, ResponseEntity<Object>> responses;
+    private final ConcurrentNavigableMap<String, Set<Key>> keysByPath = new ConcurrentSkipListMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResponseCache(MeterRegistry meterRegistry,
+                         @Value("${shareit-server.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${shareit-server.cache.expire-after-write:30s}") Duration expireAfterWrite) {
+        Cache<Key, ResponseEntity<Object>> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                // Вызывается синхронно при вытеснении по размеру и сроку, поэтому индекс не отстаёт от кэша.
+                .evictionListener((Key key, ResponseEntity<Object> response, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+        this.responses = CaffeineCacheMetrics.monitor(meterRegistry, cache, "gateway-responses");
+    }
+
+    public Mono<ResponseEntity<Object>> get(String path, @Nullable Long userId,
+                                            Supplier<Mono<ResponseEntity<Object>>> loader) {
+        Key key = new Key(path, userId);
+        return Mono.defer(() -> {
+            ResponseEntity<Object> cached = responses.getIfPresent(key);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            long evictionsBeforeLoad = evictions.get();
+            return loader.get().doOnNext(response -> {
+                if (response.getStatusCode() == HttpStatus.OK && evictions.get() == evictionsBeforeLoad) {
+                    put(key, response);
+                }
+            });
+        });
+    }
+
+    /**
+     * Сбрасывает ответы по адресу для всех пользователей.
+     */
+    public void evict(String path) {
+        evictions.incrementAndGet();
+        invalidatePath(path);
+    }
+
+    public void evictByPrefix(String prefix) {
+        evictions.incrementAndGet();
+        for (String path : keysByPath.subMap(prefix, true, prefix + Character.MAX_VALUE, false).keySet()) {
+            invalidatePath(path);
+        }
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        responses.invalidateAll();
+        keysByPath.clear();
+    }
+
+    private void put(Key key, ResponseEntity<Object> response) {
+        // Запись и индекс меняются под блокировкой ключа в кэше, как и при вытеснении этого ключа.
+        responses.asMap().compute(key, (cacheKey, previous) -> {
+            keysByPath.computeIfAbsent(cacheKey.getPath(), path -> ConcurrentHashMap.newKeySet()).add(cacheKey);
+            return response;
+        });
+    }
+
+    private void invalidatePath(String path) {
+        Set<Key> keys = keysByPath.remove(path);
+        if (keys != null) {
+            responses.invalidateAll(keys);
+        }
+    }
+
+    private void unindex(Key key) {
+        keysByPath.computeIfPresent(key.getPath(), (path, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    @lombok.Value
+    private static class Key {
+        String path;
+        Long userId;
+    }
+}
@@ -0,0 +1,59 @@
+package ru.practicum.shareit.client;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Автоматический выключатель и ограничение числа одновременных запросов к серверу, свои у каждого клиента.
+ * Настройки — resilience4j.circuitbreaker.instances.* и resilience4j.bulkhead.instances.*,
+ * состояние выключателей видно в actuator (circuitbreakers, circuitbreakerevents, health).
+ * Ответы сервера 5xx считаются отказами, хотя клиенту передаются как есть.
+ * Потоковые вызовы идут через отдельные экземпляры с суффиксом -stream (users-stream, items-stream):
+ * они длятся, пока передаётся тело, поэтому не должны занимать места обычных запросов в ограничителе
+ * и не должны открывать их выключатель как «медленные».
+ */
+@Component
+@RequiredArgsConstructor
+public class ServerCallGuard {
+    private final CircuitBreakerRegistry circuitBreakerRegistry;
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public Mono<ResponseEntity<Object>> guard(String client, Mono<ResponseEntity<Object>> call) {
+        return call
+                .flatMap(response -> response.getStatusCode().is5xxServerError()
+                        ? Mono.<ResponseEntity<Object>>error(new ServerErrorResponseException(response))
+                        : Mono.just(response))
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(client)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(client)))
+                .onErrorResume(ServerErrorResponseException.class, e -> Mono.just(e.getResponse()));
+    }
+
+    public <T> Flux<T> guard(String client, Flux<T> call) {
+        String instance = streamInstance(client);
+        return call
+                .transformDeferred(BulkheadOperator.of(bulkheadRegistry.bulkhead(instance)))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreakerRegistry.circuitBreaker(instance)));
+    }
+
+    private static String streamInstance(String client) {
+        return client + "-stream";
+    }
+
+    @Getter
+    private static class ServerErrorResponseException extends RuntimeException {
+        private final transient ResponseEntity<Object> response;
+
+        ServerErrorResponseException(ResponseEntity<Object> response) {
+            super("Сервер ответил " + response.getStatusCode(), null, false, false);
+            this.response = response;
+        }
+    }
+}
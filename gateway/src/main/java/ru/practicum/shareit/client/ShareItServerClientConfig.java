@@ -0,0 +1,79 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.reactive.function.client.WebClientCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Общий пул соединений с сервером ShareIt. Все клиенты шлюза строятся из WebClient.Builder Spring Boot,
+ * который берёт коннектор из контекста, поэтому пул и его настройки у них одни.
+ * Размер пула и очередь ожидания публикуются в actuator как reactor.netty.connection.provider.*,
+ * время получения соединения из пула — как shareit.server.connection.lease.
+ */
+@Configuration
+public class ShareItServerClientConfig {
+    private static final String POOL_NAME = "shareit-server";
+    private static final String LEASE_START = ShareItServerClientConfig.class.getName() + ".LEASE_START";
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider shareItServerConnectionProvider(
+            @Value("${shareit-server.pool.max-connections:100}") int maxConnections,
+            @Value("${shareit-server.pool.pending-acquire-max-count:1000}") int pendingAcquireMaxCount,
+            @Value("${shareit-server.pool.pending-acquire-timeout:5s}") Duration pendingAcquireTimeout,
+            @Value("${shareit-server.pool.max-idle-time:30s}") Duration maxIdleTime,
+            @Value("${shareit-server.pool.max-life-time:10m}") Duration maxLifeTime,
+            @Value("${shareit-server.pool.evict-in-background:30s}") Duration evictInBackground) {
+        // Шлюз ходит на один адрес сервера, поэтому лимит пула на адрес совпадает с общим лимитом.
+        return ConnectionProvider.builder(POOL_NAME)
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(pendingAcquireTimeout)
+                .maxIdleTime(maxIdleTime)
+                .maxLifeTime(maxLifeTime)
+                .evictInBackground(evictInBackground)
+                .metrics(true)
+                .build();
+    }
+
+    @Bean
+    public Timer shareItServerLeaseTimer(MeterRegistry meterRegistry) {
+        return Timer.builder("shareit.server.connection.lease")
+                .description("Время от начала запроса к серверу до получения соединения из пула")
+                .tag("pool", POOL_NAME)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(meterRegistry);
+    }
+
+    @Bean
+    public ClientHttpConnector shareItServerConnector(
+            ConnectionProvider shareItServerConnectionProvider, Timer shareItServerLeaseTimer,
+            @Value("${shareit-server.client.connect-timeout:2s}") Duration connectTimeout,
+            @Value("${shareit-server.client.response-timeout:5s}") Duration responseTimeout) {
+        HttpClient httpClient = HttpClient.create(shareItServerConnectionProvider)
+                .keepAlive(true)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, true)
+                .responseTimeout(responseTimeout)
+                .doOnRequest((request, connection) -> request.currentContextView().<Long>getOrEmpty(LEASE_START)
+                        .ifPresent(start -> shareItServerLeaseTimer.record(System.nanoTime() - start,
+                                TimeUnit.NANOSECONDS)));
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    @Bean
+    public WebClientCustomizer shareItServerLeaseCustomizer() {
+        return builder -> builder.filter((request, next) -> next.exchange(request)
+                .contextWrite(context -> context.put(LEASE_START, System.nanoTime())));
+    }
+}
@@ -0,0 +1,10 @@
+package ru.practicum.shareit.error;
+
+/**
+ * Ответ сервера не поместился в буфер шлюза (spring.codec.max-in-memory-size).
+ */
+public class ResponseTooLargeException extends RuntimeException {
+    public ResponseTooLargeException() {
+        super("Ответ сервера слишком велик, запросите страницу меньшего размера (параметр size).");
+    }
+}
@@ -2,44 +2,65 @@ package ru.practicum.shareit.item;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.request.ItemRequestClient;
 
+import java.io.InputStream;
 import java.util.Map;
+import java.util.Objects;
 
 @Service
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
 
+    private final ResponseCache responseCache;
+
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                      ResponseCache responseCache, RequestCoalescer requestCoalescer,
+                      ServerCallGuard serverCallGuard) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .build(),
+                "items",
+                requestCoalescer,
+                serverCallGuard
         );
+        this.responseCache = responseCache;
+    }
+
+    public static String itemPath(Object itemId) {
+        return API_PREFIX + "/" + itemId;
     }
 
-    public ResponseEntity<Object> getItems(long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getItems(long userId, Integer from, Integer size, String after) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
                 "size", size
         );
-        return get("?from={from}&size={size}", userId, parameters);
+        return get("?from={from}&size={size}", userId, parameters, after);
     }
 
-    public ResponseEntity<Object> findItemById(long userId, long itemId) {
-        return get("/" + itemId, userId);
+    public Mono<ResponseEntity<Object>> findItemById(long userId, long itemId, @Nullable String ifNoneMatch) {
+        return responseCache.get(itemPath(itemId), userId,
+                () -> conditionalGet("/" + itemId, userId, ifNoneMatch));
     }
 
-    public ResponseEntity<Object> findItemsByText(long userId, String text, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> findItemsByText(long userId, String text, Integer from, Integer size) {
         Map<String, Object> parameters = Map.of(
                 "text", text,
                 "from", from,
@@ -48,15 +69,40 @@ public class ItemClient extends BaseClient {
         return get("/search?text={text}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> addItem(Long userId, ItemDto itemDto) {
-        return post("", userId, itemDto);
+    public Mono<ResponseEntity<Object>> addItem(Long userId, ItemDto itemDto) {
+        return post("", userId, itemDto).doOnNext(this::evictRequestOf);
+    }
+
+    public Mono<ResponseEntity<StreamingResponseBody>> addItems(long userId, MediaType contentType,
+                                                                InputStream body) {
+        // Вещи сохраняются, пока копируется ответ, поэтому кэш сбрасывается после него. Какие запросы получили
+        // новые вещи, из ответа не видно, поэтому сбрасываются все.
+        return postStreamForNdjson("/batch", userId, contentType, body)
+                .map(response -> ResponseEntity.status(response.getStatusCode()).headers(response.getHeaders())
+                        .body(outputStream -> {
+                            try {
+                                Objects.requireNonNull(response.getBody()).writeTo(outputStream);
+                            } finally {
+                                responseCache.evictByPrefix(ItemRequestClient.requestPath(""));
+                            }
+                        }));
+    }
+
+    public Mono<ResponseEntity<Object>> patchItem(Long userId, long itemId, ItemDto itemDto) {
+        return patch("/" + itemId, userId, itemDto)
+                .doOnNext(this::evictRequestOf)
+                .doFinally(signal -> responseCache.evict(itemPath(itemId)));
     }
 
-    public ResponseEntity<Object> patchItem(Long userId, long itemId, ItemDto itemDto) {
-        return patch("/" + itemId, userId, itemDto);
+    public Mono<ResponseEntity<Object>> addComment(Long userId, Long itemId, CommentDto commentDto) {
+        return post("/" + itemId + "/comment", userId, commentDto)
+                .doFinally(signal -> responseCache.evict(itemPath(itemId)));
     }
 
-    public ResponseEntity<Object> addComment(Long userId, Long itemId, CommentDto commentDto) {
-        return post("/" + itemId + "/comment", userId, commentDto);
+    private void evictRequestOf(ResponseEntity<Object> response) {
+        Object requestId = bodyField(response, "requestId");
+        if (requestId != null) {
+            responseCache.evict(ItemRequestClient.requestPath(requestId));
+        }
     }
 }
\ No newline at end of file
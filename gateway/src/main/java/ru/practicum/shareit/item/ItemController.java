@@ -1,10 +1,16 @@
 package ru.practicum.shareit.item;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.booking.BookingClient;
 import ru.practicum.shareit.item.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.validation.ItemValidation;
@@ -12,6 +18,12 @@ import ru.practicum.shareit.validation.ItemValidation;
 import javax.validation.Valid;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
 @Controller
 @RequestMapping("/items")
@@ -19,24 +31,38 @@ import javax.validation.constraints.PositiveOrZero;
 @Validated
 public class ItemController {
     private final ItemClient itemClient;
+    private final BookingClient bookingClient;
     private final ItemValidation itemValidation;
 
     @GetMapping
-    public ResponseEntity<Object> getAllByUserId(
+    public Mono<ResponseEntity<Object>> getAllByUserId(
             @RequestHeader("X-Sharer-User-Id") @Positive long userId,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive Integer size) {
-        return itemClient.getItems(userId, from, size);
+            @RequestParam(defaultValue = "10") @Positive Integer size,
+            @RequestParam(required = false) String after) {
+        return itemClient.getItems(userId, from, size, after);
     }
 
     @GetMapping("{itemId}")
-    public ResponseEntity<Object> getById(@RequestHeader("X-Sharer-User-Id") @Positive long userId,
-                                          @PathVariable Long itemId) {
-        return itemClient.findItemById(userId, itemId);
+    public Mono<ResponseEntity<Object>> getById(@RequestHeader("X-Sharer-User-Id") @Positive long userId,
+                                                @PathVariable Long itemId,
+                                                @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                String ifNoneMatch) {
+        return itemClient.findItemById(userId, itemId, ifNoneMatch);
+    }
+
+    @GetMapping("/{itemId}/availability")
+    public Mono<ResponseEntity<Object>> getAvailability(
+            @RequestHeader("X-Sharer-User-Id") @Positive long userId,
+            @PathVariable long itemId,
+            @RequestParam @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+            @RequestParam @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        itemValidation.validationBeforeAvailability(from, to);
+        return bookingClient.getAvailability(userId, itemId, from, to);
     }
 
     @GetMapping("/search")
-    public ResponseEntity<Object> getItemsByText(
+    public Mono<ResponseEntity<Object>> getItemsByText(
             @RequestHeader("X-Sharer-User-Id") @Positive long userId,
             @RequestParam String text,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
@@ -45,24 +71,32 @@ public class ItemController {
     }
 
     @PostMapping
-    public ResponseEntity<Object> addItem(@RequestHeader("X-Sharer-User-Id") @Positive Long userId,
-                                          @Valid @RequestBody ItemDto itemDto) {
+    public Mono<ResponseEntity<Object>> addItem(@RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+                                                @Valid @RequestBody ItemDto itemDto) {
         itemValidation.validationBeforeAdd(itemDto);
         return itemClient.addItem(userId, itemDto);
     }
 
+    @PostMapping(value = "/batch", consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE},
+            produces = APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<StreamingResponseBody>> addItems(
+            @RequestHeader("X-Sharer-User-Id") @Positive long userId,
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        return itemClient.addItems(userId, contentType, body);
+    }
+
     @PatchMapping("/{itemId}")
-    public ResponseEntity<Object> patchItem(@RequestHeader("X-Sharer-User-Id") @Positive Long userId,
-                                            @Valid @RequestBody ItemDto itemDto,
-                                            @PathVariable("itemId") Long itemId) {
+    public Mono<ResponseEntity<Object>> patchItem(@RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+                                                  @Valid @RequestBody ItemDto itemDto,
+                                                  @PathVariable("itemId") Long itemId) {
         itemValidation.validationBeforeUpdate(itemDto);
         return itemClient.patchItem(userId, itemId, itemDto);
     }
 
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> addComment(@RequestHeader("X-Sharer-User-Id") @Positive Long userId,
-                                             @Valid @RequestBody CommentDto commentDto,
-                                             @PathVariable("itemId") Long itemId) {
+    public Mono<ResponseEntity<Object>> addComment(@RequestHeader("X-Sharer-User-Id") @Positive Long userId,
+                                                   @Valid @RequestBody CommentDto commentDto,
+                                                   @PathVariable("itemId") Long itemId) {
         return itemClient.addComment(userId, itemId, commentDto);
     }
 }
@@ -0,0 +1,15 @@
+package ru.practicum.shareit.ratelimit;
+
+import lombok.Getter;
+
+import static java.lang.String.format;
+
+@Getter
+public class RateLimitExceededException extends RuntimeException {
+    private final long retryAfterSeconds;
+
+    public RateLimitExceededException(long retryAfterSeconds) {
+        super(format("Слишком много запросов, повторите через %s с.", retryAfterSeconds));
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+}
@@ -0,0 +1,31 @@
+package ru.practicum.shareit.ratelimit;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Лимиты запросов на пользователя. Для адреса берётся первый подходящий шаблон из limits,
+ * если ни один не подошёл — defaultLimit.
+ */
+@Data
+@Component
+@ConfigurationProperties("shareit.rate-limit")
+public class RateLimitProperties {
+    private boolean enabled = true;
+    private Duration idleTimeout = Duration.ofMinutes(10);
+    private long maximumBuckets = 100_000;
+    private Limit defaultLimit = new Limit();
+    private List<Limit> limits = new ArrayList<>();
+
+    @Data
+    public static class Limit {
+        private String path = "/**";
+        private long capacity = 100;
+        private double refillPerSecond = 50;
+    }
+}
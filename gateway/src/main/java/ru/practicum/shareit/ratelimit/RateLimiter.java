@@ -0,0 +1,80 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Бакеты лимитов запросов. Бакет заводится на пару клиент + шаблон адреса; бакеты, к которым не обращались
+ * дольше idleTimeout, удаляются. Списывает токены RateLimitFilter для запросов шлюза и BatchExecutor
+ * для подзапросов пакета, поэтому подзапрос расходует тот же бакет, что и такой же отдельный запрос.
+ */
+@Component
+public class RateLimiter {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final RateLimitProperties properties;
+    private final MeterRegistry meterRegistry;
+    private final Cache<BucketKey, TokenBucket> buckets;
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
+
+    public RateLimiter(RateLimitProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.meterRegistry = meterRegistry;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(properties.getMaximumBuckets())
+                .expireAfterAccess(properties.getIdleTimeout())
+                .build();
+    }
+
+    public static String userClient(String userId) {
+        return "user:" + userId;
+    }
+
+    public static String addressClient(String address) {
+        return "address:" + address;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Забирает токен из бакета клиента для адреса.
+     *
+     * @throws RateLimitExceededException если токенов нет
+     */
+    public void acquire(String client, String path) {
+        if (!properties.isEnabled()) {
+            return;
+        }
+        RateLimitProperties.Limit limit = findLimit(path);
+        long now = System.nanoTime();
+        TokenBucket bucket = buckets.get(new BucketKey(client, limit.getPath()),
+                key -> new TokenBucket(limit.getCapacity(), limit.getRefillPerSecond(), now));
+        long waitNanos = bucket.tryAcquire(now);
+        if (waitNanos > 0) {
+            meterRegistry.counter("shareit.rate-limit.rejected", "path", limit.getPath()).increment();
+            throw new RateLimitExceededException(Math.max(1, (waitNanos + NANOS_PER_SECOND - 1) / NANOS_PER_SECOND));
+        }
+    }
+
+    private RateLimitProperties.Limit findLimit(String path) {
+        for (RateLimitProperties.Limit limit : properties.getLimits()) {
+            if (pathMatcher.match(limit.getPath(), path)) {
+                return limit;
+            }
+        }
+        return properties.getDefaultLimit();
+    }
+
+    @lombok.Value
+    private static class BucketKey {
+        String client;
+        String path;
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.ratelimit;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Токен-бакет в форме GCRA: вместо числа токенов хранится теоретическое время следующего запроса,
+ * поэтому состояние бакета — одно число, которое обновляется через CAS без блокировок.
+ */
+class TokenBucket {
+    private final long emissionIntervalNanos;
+    private final long burstToleranceNanos;
+    private final AtomicLong theoreticalArrivalNanos;
+
+    TokenBucket(long capacity, double refillPerSecond, long nowNanos) {
+        this.emissionIntervalNanos = (long) (TimeUnit.SECONDS.toNanos(1) / refillPerSecond);
+        this.burstToleranceNanos = emissionIntervalNanos * (capacity - 1);
+        this.theoreticalArrivalNanos = new AtomicLong(nowNanos);
+    }
+
+    /**
+     * Забирает токен из бакета.
+     *
+     * @return 0, если токен выдан, иначе через сколько наносекунд появится следующий токен
+     */
+    long tryAcquire(long nowNanos) {
+        while (true) {
+            long theoreticalArrival = theoreticalArrivalNanos.get();
+            long start = Math.max(theoreticalArrival, nowNanos);
+            long waitNanos = start - nowNanos - burstToleranceNanos;
+            if (waitNanos > 0) {
+                return waitNanos;
+            }
+            if (theoreticalArrivalNanos.compareAndSet(theoreticalArrival, start + emissionIntervalNanos)) {
+                return 0;
+            }
+        }
+    }
+}
@@ -2,12 +2,16 @@ package ru.practicum.shareit.request;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import javax.validation.Valid;
@@ -17,33 +21,45 @@ import java.util.Map;
 public class ItemRequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
+    private final ResponseCache responseCache;
+
     @Autowired
-    public ItemRequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemRequestClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                             ResponseCache responseCache, RequestCoalescer requestCoalescer,
+                             ServerCallGuard serverCallGuard) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .build(),
+                "requests",
+                requestCoalescer,
+                serverCallGuard
         );
+        this.responseCache = responseCache;
+    }
+
+    public static String requestPath(Object requestId) {
+        return API_PREFIX + "/" + requestId;
     }
 
-    public ResponseEntity<Object> addRequest(Long userId, @Valid ItemRequestDto itemRequestNewDto) {
+    public Mono<ResponseEntity<Object>> addRequest(Long userId, @Valid ItemRequestDto itemRequestNewDto) {
         return post("", userId, itemRequestNewDto);
     }
 
-    public ResponseEntity<Object> findRequestsByUserId(Long userId) {
+    public Mono<ResponseEntity<Object>> findRequestsByUserId(Long userId) {
         return get("", userId);
     }
 
-    public ResponseEntity<Object> findAllRequests(long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> findAllRequests(long userId, Integer from, Integer size, String after) {
         Map<String, Object> parameters = Map.of(
                 "from", from,
                 "size", size
         );
-        return get("/all?from={from}&size={size}", userId, parameters);
+        return get("/all?from={from}&size={size}", userId, parameters, after);
     }
 
-    public ResponseEntity<Object> findRequestById(long userId, Long requestId) {
-        return get("/" + requestId, userId);
+    public Mono<ResponseEntity<Object>> findRequestById(long userId, Long requestId, @Nullable String ifNoneMatch) {
+        return responseCache.get(requestPath(requestId), userId,
+                () -> conditionalGet("/" + requestId, userId, ifNoneMatch));
     }
 }
@@ -1,10 +1,12 @@
 package ru.practicum.shareit.request;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 
 import javax.validation.Valid;
@@ -19,29 +21,31 @@ public class ItemRequestController {
     private final ItemRequestClient requestClient;
 
     @PostMapping
-    public ResponseEntity<Object> addRequest(
+    public Mono<ResponseEntity<Object>> addRequest(
             @RequestHeader("X-Sharer-User-Id") Long userId,
             @Valid @RequestBody ItemRequestDto itemRequestDto) {
         return requestClient.addRequest(userId, itemRequestDto);
     }
 
     @GetMapping
-    public ResponseEntity<Object> getAllByUserId(@RequestHeader("X-Sharer-User-Id") Long userId) {
+    public Mono<ResponseEntity<Object>> getAllByUserId(@RequestHeader("X-Sharer-User-Id") Long userId) {
         return requestClient.findRequestsByUserId(userId);
     }
 
     @GetMapping("/all")
-    public ResponseEntity<Object> getAll(
+    public Mono<ResponseEntity<Object>> getAll(
             @RequestHeader("X-Sharer-User-Id") long userId,
             @RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
-            @RequestParam(defaultValue = "10") @Positive int size) {
-        return requestClient.findAllRequests(userId, from, size);
+            @RequestParam(defaultValue = "10") @Positive int size,
+            @RequestParam(required = false) String after) {
+        return requestClient.findAllRequests(userId, from, size, after);
     }
 
     @GetMapping("/{requestId}")
-    public ResponseEntity<Object> getById(
+    public Mono<ResponseEntity<Object>> getById(
             @RequestHeader("X-Sharer-User-Id") long userId,
-            @PathVariable long requestId) {
-        return requestClient.findRequestById(userId, requestId);
+            @PathVariable long requestId,
+            @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false) String ifNoneMatch) {
+        return requestClient.findRequestById(userId, requestId, ifNoneMatch);
     }
 }
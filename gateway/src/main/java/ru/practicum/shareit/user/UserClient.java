@@ -2,45 +2,93 @@ package ru.practicum.shareit.user;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.RequestCoalescer;
+import ru.practicum.shareit.client.ResponseCache;
+import ru.practicum.shareit.client.ServerCallGuard;
+import ru.practicum.shareit.item.ItemClient;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Map;
+
 @Service
 public class UserClient extends BaseClient {
     private static final String API_PREFIX = "/users";
 
+    private final ResponseCache responseCache;
+
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(@Value("${shareit-server.url}") String serverUrl, WebClient.Builder builder,
+                      ResponseCache responseCache, RequestCoalescer requestCoalescer,
+                      ServerCallGuard serverCallGuard) {
         super(
                 builder
-                        .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .uriBuilderFactory(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
+                        .build(),
+                "users",
+                requestCoalescer,
+                serverCallGuard
         );
+        this.responseCache = responseCache;
     }
 
-    public ResponseEntity<Object> findUsers() {
-        return get("");
+    public static String userPath(Object userId) {
+        return API_PREFIX + "/" + userId;
+    }
+
+    public Mono<ResponseEntity<Object>> findUsers(Integer from, Integer size, String after) {
+        if (size == null) {
+            return get("");
+        }
+        Map<String, Object> parameters = Map.of(
+                "from", from,
+                "size", size
+        );
+        return get("?from={from}&size={size}", null, parameters, after);
     }
 
-    public ResponseEntity<Object> findUserById(long id) {
-        return get("/" + id);
+    public void streamUsers(OutputStream outputStream) throws IOException {
+        copy(guard(webClient.get()
+                .uri("/stream")
+                .httpRequest(this::applyStreamResponseTimeout)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .retrieve()
+                .bodyToFlux(DataBuffer.class)), outputStream);
     }
 
-    public ResponseEntity<Object> addUser(UserDto userDto) {
+    public Mono<ResponseEntity<Object>> findUserById(long id) {
+        return responseCache.get(userPath(id), null, () -> get("/" + id));
+    }
+
+    public Mono<ResponseEntity<Object>> addUser(UserDto userDto) {
         return post("", userDto);
     }
 
-    public ResponseEntity<Object> patchUser(long id, UserDto userDto) {
-        return patch("/" + id, userDto);
+    public Mono<ResponseEntity<StreamingResponseBody>> addUsers(MediaType contentType, InputStream body) {
+        return postStreamForNdjson("/batch", null, contentType, body);
+    }
+
+    public Mono<ResponseEntity<Object>> patchUser(long id, UserDto userDto) {
+        // Имя пользователя входит в отзывы к вещам, поэтому вместе с пользователем сбрасываются и вещи.
+        return patch("/" + id, userDto).doFinally(signal -> {
+            responseCache.evict(userPath(id));
+            responseCache.evictByPrefix(ItemClient.itemPath(""));
+        });
     }
 
-    public ResponseEntity<Object> deleteUser(long id) {
-        return delete("/" + id);
+    public Mono<ResponseEntity<Object>> deleteUser(long id) {
+        // Вместе с пользователем на сервере каскадно удаляются его вещи, запросы, бронирования и отзывы.
+        return delete("/" + id).doFinally(signal -> responseCache.evictAll());
     }
 }
@@ -1,16 +1,24 @@
 package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.validation.UserValidation;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+import java.io.InputStream;
 
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
 
 @Controller
 @RequestMapping(path = "/users")
@@ -21,30 +29,44 @@ public class UserController {
     private final UserValidation userValidation;
 
     @GetMapping
-    public ResponseEntity<Object> getAll() {
-        return userClient.findUsers();
+    public Mono<ResponseEntity<Object>> getAll(@RequestParam(defaultValue = "0") @PositiveOrZero Integer from,
+                                               @RequestParam(required = false) @Positive Integer size,
+                                               @RequestParam(required = false) String after) {
+        return userClient.findUsers(from, size, after);
+    }
+
+    @GetMapping(value = "/stream", produces = APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> stream() {
+        return ResponseEntity.ok().body(userClient::streamUsers);
     }
 
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getById(@PathVariable long id) {
+    public Mono<ResponseEntity<Object>> getById(@PathVariable long id) {
         return userClient.findUserById(id);
     }
 
     @PostMapping
-    public ResponseEntity<Object> add(@Valid @RequestBody UserDto userDto) {
+    public Mono<ResponseEntity<Object>> add(@Valid @RequestBody UserDto userDto) {
         userValidation.validationBeforeAdd(userDto);
         return userClient.addUser(userDto);
     }
 
+    @PostMapping(value = "/batch", consumes = {APPLICATION_JSON_VALUE, APPLICATION_NDJSON_VALUE},
+            produces = APPLICATION_NDJSON_VALUE)
+    public Mono<ResponseEntity<StreamingResponseBody>> addBatch(
+            @RequestHeader(HttpHeaders.CONTENT_TYPE) MediaType contentType, InputStream body) {
+        return userClient.addUsers(contentType, body);
+    }
+
     @PatchMapping(value = "/{id}", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
-    public ResponseEntity<Object> update(@Valid @RequestBody UserDto userDto,
-                                         @PathVariable long id) {
+    public Mono<ResponseEntity<Object>> update(@Valid @RequestBody UserDto userDto,
+                                               @PathVariable long id) {
         userValidation.validationBeforeUpdate(userDto);
         return userClient.patchUser(id, userDto);
     }
 
     @DeleteMapping("/{id}")
-    public ResponseEntity<Object> delete(@PathVariable long id) {
+    public Mono<ResponseEntity<Object>> delete(@PathVariable long id) {
         return userClient.deleteUser(id);
     }
 }
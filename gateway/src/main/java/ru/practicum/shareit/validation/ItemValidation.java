@@ -4,6 +4,8 @@ import org.springframework.stereotype.Service;
 import ru.practicum.shareit.error.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+
 @Service
 public class ItemValidation {
 
@@ -25,4 +27,10 @@ public class ItemValidation {
             throw new ValidationException("Описание вещи не должно быть пустым.");
         }
     }
+
+    public void validationBeforeAvailability(LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Начало периода должно быть раньше его окончания.");
+        }
+    }
 }
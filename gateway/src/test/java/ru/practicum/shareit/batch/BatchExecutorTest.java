@@ -0,0 +1,97 @@
+package ru.practicum.shareit.batch;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import ru.practicum.shareit.batch.dto.SubRequestDto;
+import ru.practicum.shareit.batch.dto.SubResponseDto;
+import ru.practicum.shareit.booking.BookingClient;
+import ru.practicum.shareit.item.ItemClient;
+import ru.practicum.shareit.ratelimit.RateLimitProperties;
+import ru.practicum.shareit.ratelimit.RateLimiter;
+import ru.practicum.shareit.request.ItemRequestClient;
+import ru.practicum.shareit.user.UserClient;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BatchExecutorTest {
+    @Mock
+    UserClient userClient;
+    @Mock
+    ItemClient itemClient;
+    @Mock
+    BookingClient bookingClient;
+    @Mock
+    ItemRequestClient requestClient;
+
+    private BatchExecutor batchExecutor;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Limit search = new RateLimitProperties.Limit();
+        search.setPath("/items/search");
+        search.setCapacity(2);
+        search.setRefillPerSecond(0.1);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLimits(List.of(search));
+        batchExecutor = new BatchExecutor(userClient, itemClient, bookingClient, requestClient,
+                new RateLimiter(properties, new SimpleMeterRegistry()), new ObjectMapper(), 10, 1);
+    }
+
+    @Test
+    void execute_chargeSubRequestsToTheirOwnBuckets() {
+        when(itemClient.findItemsByText(eq(1L), eq("дрель"), anyInt(), anyInt()))
+                .thenReturn(Mono.just(ResponseEntity.ok("[]".getBytes())));
+        when(itemClient.getItems(eq(1L), anyInt(), anyInt(), isNull()))
+                .thenReturn(Mono.just(ResponseEntity.ok("[]".getBytes())));
+        SubRequestDto searchRequest = new SubRequestDto(null, "/items/search?text=дрель");
+
+        List<SubResponseDto> responses = batchExecutor.execute(1L, List.of(searchRequest, searchRequest,
+                searchRequest, new SubRequestDto(null, "/items"))).block();
+
+        assertEquals(List.of(200, 200, 429, 200), responses.stream().map(SubResponseDto::getStatus)
+                .collect(Collectors.toList()));
+        assertTrue(responses.get(2).getBody().contains("Слишком много запросов"));
+        verify(itemClient, times(2)).findItemsByText(anyLong(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void execute_keepBucketsBetweenBatches() {
+        when(itemClient.findItemsByText(eq(1L), eq("дрель"), anyInt(), anyInt()))
+                .thenReturn(Mono.just(ResponseEntity.ok("[]".getBytes())));
+        List<SubRequestDto> requests = List.of(new SubRequestDto("a", "/items/search?text=дрель"),
+                new SubRequestDto("b", "/items/search?text=дрель"));
+        batchExecutor.execute(1L, requests).block();
+
+        List<SubResponseDto> responses = batchExecutor.execute(1L, requests).block();
+
+        assertEquals(List.of(429, 429), responses.stream().map(SubResponseDto::getStatus)
+                .collect(Collectors.toList()));
+    }
+
+    @Test
+    void execute_findAllUsersWithoutSize() {
+        when(userClient.findUsers(0, null, null)).thenReturn(Mono.just(ResponseEntity.ok("[]".getBytes())));
+        when(userClient.findUsers(0, 5, null)).thenReturn(Mono.just(ResponseEntity.ok("[]".getBytes())));
+
+        List<SubResponseDto> responses = batchExecutor.execute(1L, List.of(new SubRequestDto(null, "/users"),
+                new SubRequestDto(null, "/users?size=5"), new SubRequestDto(null, "/users?size=0"))).block();
+
+        assertEquals(List.of(200, 200, 400), responses.stream().map(SubResponseDto::getStatus)
+                .collect(Collectors.toList()));
+        verify(userClient).findUsers(0, null, null);
+        verify(userClient).findUsers(0, 5, null);
+    }
+}
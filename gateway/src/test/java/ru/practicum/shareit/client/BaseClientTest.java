@@ -0,0 +1,126 @@
+package ru.practicum.shareit.client;
+
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Objects;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+public class BaseClientTest {
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private ClientRequest sentRequest;
+
+    @Test
+    void postStreamForNdjson_copyRowsAfterStatus() throws Exception {
+        ClientResponse serverResponse = ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .body(Flux.just(buffer("{\"row\":0,\"status\":201}\n"), buffer("{\"row\":1,\"status\":409}\n")))
+                .build();
+
+        ResponseEntity<StreamingResponseBody> response = client(serverResponse).postStream().block();
+
+        assertNotNull(response);
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_NDJSON, response.getHeaders().getContentType());
+        assertEquals("{\"row\":0,\"status\":201}\n{\"row\":1,\"status\":409}\n", write(response));
+    }
+
+    @Test
+    void postStreamForNdjson_passServerErrorStatusThrough() throws Exception {
+        ClientResponse serverResponse = ClientResponse.create(HttpStatus.UNSUPPORTED_MEDIA_TYPE)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"error\":\"Content type not supported\"}")
+                .build();
+
+        ResponseEntity<StreamingResponseBody> response = client(serverResponse).postStream().block();
+
+        assertNotNull(response);
+        assertEquals(HttpStatus.UNSUPPORTED_MEDIA_TYPE, response.getStatusCode());
+        assertEquals(MediaType.APPLICATION_JSON, response.getHeaders().getContentType());
+        assertEquals("{\"error\":\"Content type not supported\"}", write(response));
+    }
+
+    @Test
+    void postStreamForNdjson_useStreamBreaker() throws Exception {
+        ClientResponse serverResponse = ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .body(Flux.just(buffer("{\"row\":0,\"status\":201}\n")))
+                .build();
+
+        write(client(serverResponse).postStream().block());
+
+        assertEquals(1, circuitBreakerRegistry.circuitBreaker("users-stream").getMetrics()
+                .getNumberOfSuccessfulCalls());
+        assertTrue(circuitBreakerRegistry.find("users").isEmpty());
+    }
+
+    @Test
+    void postStreamForNdjson_useStreamResponseTimeout() throws Exception {
+        ClientResponse serverResponse = ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_NDJSON_VALUE)
+                .build();
+        TestClient client = client(serverResponse);
+        client.setStreamResponseTimeout(Duration.ofMinutes(3));
+        ClientHttpRequest httpRequest = mock(ClientHttpRequest.class);
+        HttpClientRequest nativeRequest = mock(HttpClientRequest.class);
+        when(httpRequest.getNativeRequest()).thenReturn(nativeRequest);
+
+        write(client.postStream().block());
+        sentRequest.httpRequest().accept(httpRequest);
+
+        verify(nativeRequest).responseTimeout(Duration.ofMinutes(3));
+    }
+
+    private TestClient client(ClientResponse serverResponse) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    sentRequest = request;
+                    return Mono.just(serverResponse);
+                })
+                .build();
+        return new TestClient(webClient, new ServerCallGuard(circuitBreakerRegistry, BulkheadRegistry.ofDefaults()));
+    }
+
+    private static DataBuffer buffer(String value) {
+        return DefaultDataBufferFactory.sharedInstance.wrap(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String write(ResponseEntity<StreamingResponseBody> response) throws Exception {
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+        Objects.requireNonNull(response.getBody()).writeTo(outputStream);
+        return outputStream.toString(StandardCharsets.UTF_8);
+    }
+
+    private static class TestClient extends BaseClient {
+        TestClient(WebClient webClient, ServerCallGuard serverCallGuard) {
+            super(webClient, "users", new RequestCoalescer(new SimpleMeterRegistry()), serverCallGuard);
+        }
+
+        Mono<ResponseEntity<StreamingResponseBody>> postStream() {
+            return postStreamForNdjson("/batch", null, MediaType.APPLICATION_JSON,
+                    new ByteArrayInputStream("[]".getBytes(StandardCharsets.UTF_8)));
+        }
+    }
+}
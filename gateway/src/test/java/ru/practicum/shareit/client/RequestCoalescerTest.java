@@ -0,0 +1,87 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RequestCoalescerTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final AtomicInteger exchanges = new AtomicInteger();
+    private RequestCoalescer requestCoalescer;
+
+    @BeforeEach
+    void setUp() {
+        requestCoalescer = new RequestCoalescer(meterRegistry);
+    }
+
+    @Test
+    void coalesce_shareInFlightExchange() {
+        Sinks.One<ResponseEntity<Object>> pending = Sinks.one();
+        AtomicReference<ResponseEntity<Object>> first = new AtomicReference<>();
+        AtomicReference<ResponseEntity<Object>> second = new AtomicReference<>();
+
+        requestCoalescer.coalesce("/items/1", exchange(pending.asMono())).subscribe(first::set);
+        requestCoalescer.coalesce("/items/1", exchange(pending.asMono())).subscribe(second::set);
+        pending.tryEmitValue(ResponseEntity.ok("Мопед"));
+
+        assertEquals(1, exchanges.get());
+        assertEquals("Мопед", first.get().getBody());
+        assertSame(first.get(), second.get());
+        assertEquals(1, coalesced());
+    }
+
+    @Test
+    void coalesce_notShareBetweenKeys() {
+        Sinks.One<ResponseEntity<Object>> pending = Sinks.one();
+
+        requestCoalescer.coalesce("/items/1", exchange(pending.asMono())).subscribe();
+        requestCoalescer.coalesce("/items/2", exchange(pending.asMono())).subscribe();
+
+        assertEquals(2, exchanges.get());
+        assertEquals(0, coalesced());
+    }
+
+    @Test
+    void coalesce_newExchangeAfterCompletion() {
+        requestCoalescer.coalesce("/items/1", exchange(Mono.just(ResponseEntity.ok("Мопед")))).block();
+
+        requestCoalescer.coalesce("/items/1", exchange(Mono.just(ResponseEntity.ok("Мопед")))).block();
+
+        assertEquals(2, exchanges.get());
+        assertEquals(0, coalesced());
+    }
+
+    @Test
+    void coalesce_newExchangeAfterError() {
+        Mono<ResponseEntity<Object>> failed = requestCoalescer.coalesce("/items/1",
+                exchange(Mono.error(new IllegalStateException("Сервер недоступен"))));
+        assertThrows(IllegalStateException.class, failed::block);
+
+        ResponseEntity<Object> response = requestCoalescer.coalesce("/items/1",
+                exchange(Mono.just(ResponseEntity.ok("Мопед")))).block();
+
+        assertEquals("Мопед", response.getBody());
+        assertEquals(2, exchanges.get());
+        assertEquals(0, coalesced());
+    }
+
+    private Supplier<Mono<ResponseEntity<Object>>> exchange(Mono<ResponseEntity<Object>> response) {
+        return () -> Mono.defer(() -> {
+            exchanges.incrementAndGet();
+            return response;
+        });
+    }
+
+    private double coalesced() {
+        return meterRegistry.counter("shareit.server.requests.coalesced").count();
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResponseCacheTest {
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<Mono<ResponseEntity<Object>>> loader = () -> {
+        loads.incrementAndGet();
+        return Mono.just(ResponseEntity.ok("Мопед"));
+    };
+    private ResponseCache responseCache;
+
+    @BeforeEach
+    void setUp() {
+        responseCache = new ResponseCache(new SimpleMeterRegistry(), 100, Duration.ofMinutes(1));
+    }
+
+    @Test
+    void get_returnCachedResponseWithoutLoading() {
+        responseCache.get("/items/1", 1L, loader).block();
+
+        ResponseEntity<Object> response = responseCache.get("/items/1", 1L, loader).block();
+
+        assertEquals("Мопед", response.getBody());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_separateResponsesPerUser() {
+        responseCache.get("/items/1", 1L, loader).block();
+
+        responseCache.get("/items/1", 2L, loader).block();
+        responseCache.get("/items/1", null, loader).block();
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void get_notStoreErrorResponse() {
+        Supplier<Mono<ResponseEntity<Object>>> notFound = () -> {
+            loads.incrementAndGet();
+            return Mono.just(ResponseEntity.status(HttpStatus.NOT_FOUND).build());
+        };
+        responseCache.get("/items/1", 1L, notFound).block();
+
+        responseCache.get("/items/1", 1L, loader).block();
+
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_notStoreWhenEvictedDuringLoad() {
+        Sinks.One<ResponseEntity<Object>> pending = Sinks.one();
+        Mono<ResponseEntity<Object>> load = responseCache.get("/items/1", 1L, () -> {
+            loads.incrementAndGet();
+            return pending.asMono();
+        });
+        load.subscribe();
+
+        responseCache.evict("/items/1");
+        pending.tryEmitValue(ResponseEntity.ok("Старый мопед"));
+        ResponseEntity<Object> response = responseCache.get("/items/1", 1L, loader).block();
+
+        assertEquals("Мопед", response.getBody());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_loadAfterEvictByPrefix() {
+        responseCache.get("/items/1", 1L, loader).block();
+        responseCache.get("/users/1", 1L, loader).block();
+
+        responseCache.evictByPrefix("/items");
+        responseCache.get("/items/1", 1L, loader).block();
+        responseCache.get("/users/1", 1L, loader).block();
+
+        assertEquals(3, loads.get());
+    }
+
+    @Test
+    void evict_dropPathForAllUsersOnly() {
+        responseCache.get("/items/1", 1L, loader).block();
+        responseCache.get("/items/1", 2L, loader).block();
+        responseCache.get("/items/10", 1L, loader).block();
+
+        responseCache.evict("/items/1");
+        responseCache.get("/items/1", 1L, loader).block();
+        responseCache.get("/items/1", 2L, loader).block();
+        responseCache.get("/items/10", 1L, loader).block();
+
+        assertEquals(5, loads.get());
+    }
+}
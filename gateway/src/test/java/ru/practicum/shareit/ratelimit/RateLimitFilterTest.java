@@ -0,0 +1,76 @@
+package ru.practicum.shareit.ratelimit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import lombok.SneakyThrows;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+import static org.hamcrest.Matchers.startsWith;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+public class RateLimitFilterTest {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private MockMvc mvc;
+
+    @BeforeEach
+    void setUp() {
+        RateLimitProperties.Limit search = new RateLimitProperties.Limit();
+        search.setPath("/items/search");
+        search.setCapacity(2);
+        search.setRefillPerSecond(0.5);
+        RateLimitProperties properties = new RateLimitProperties();
+        properties.setLimits(List.of(search));
+        mvc = MockMvcBuilders.standaloneSetup(new StubController())
+                .addFilters(new RateLimitFilter(new RateLimiter(properties, meterRegistry), new ObjectMapper()))
+                .build();
+    }
+
+    @Test
+    @SneakyThrows
+    void rejectWithRetryAfterWhenBucketIsEmpty() {
+        mvc.perform(request("/items/search", 1)).andExpect(status().isOk());
+        mvc.perform(request("/items/search", 1)).andExpect(status().isOk());
+
+        mvc.perform(request("/items/search", 1))
+                .andExpect(status().isTooManyRequests())
+                .andExpect(header().string(HttpHeaders.RETRY_AFTER, "2"))
+                .andExpect(jsonPath("$.error", startsWith("Слишком много запросов")));
+        assertEquals(1, meterRegistry.counter("shareit.rate-limit.rejected", "path", "/items/search").count());
+    }
+
+    @Test
+    @SneakyThrows
+    void keepSeparateBucketsPerUserAndPath() {
+        mvc.perform(request("/items/search", 1)).andExpect(status().isOk());
+        mvc.perform(request("/items/search", 1)).andExpect(status().isOk());
+
+        mvc.perform(request("/items/search", 2)).andExpect(status().isOk());
+        mvc.perform(request("/items", 1)).andExpect(status().isOk());
+    }
+
+    /**
+     * Сервлет диспетчера шлюза отображён на "/", поэтому servletPath запроса — весь адрес, как и здесь.
+     */
+    private static MockHttpServletRequestBuilder request(String path, long userId) {
+        return get(path).servletPath(path).header("X-Sharer-User-Id", userId);
+    }
+
+    @RestController
+    static class StubController {
+        @GetMapping({"/items", "/items/search"})
+        public String items() {
+            return "[]";
+        }
+    }
+}
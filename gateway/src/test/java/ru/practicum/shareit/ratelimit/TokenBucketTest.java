@@ -0,0 +1,66 @@
+package ru.practicum.shareit.ratelimit;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TokenBucketTest {
+    private static final long INTERVAL = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final long start = TimeUnit.SECONDS.toNanos(1000);
+    private final TokenBucket bucket = new TokenBucket(3, 10, start);
+
+    @Test
+    void tryAcquire_allowBurstUpToCapacity() {
+        assertEquals(0, bucket.tryAcquire(start));
+        assertEquals(0, bucket.tryAcquire(start));
+        assertEquals(0, bucket.tryAcquire(start));
+
+        assertEquals(INTERVAL, bucket.tryAcquire(start));
+    }
+
+    @Test
+    void tryAcquire_returnTimeUntilNextToken() {
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(start);
+        }
+
+        assertEquals(INTERVAL - TimeUnit.MILLISECONDS.toNanos(40),
+                bucket.tryAcquire(start + TimeUnit.MILLISECONDS.toNanos(40)));
+    }
+
+    @Test
+    void tryAcquire_refillOneTokenPerInterval() {
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(start);
+        }
+
+        assertEquals(0, bucket.tryAcquire(start + INTERVAL));
+        assertEquals(INTERVAL, bucket.tryAcquire(start + INTERVAL));
+        assertEquals(0, bucket.tryAcquire(start + 2 * INTERVAL));
+    }
+
+    @Test
+    void tryAcquire_notAccumulateAboveCapacity() {
+        long later = start + TimeUnit.SECONDS.toNanos(60);
+
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+        assertEquals(0, bucket.tryAcquire(later));
+
+        assertTrue(bucket.tryAcquire(later) > 0);
+    }
+
+    @Test
+    void tryAcquire_rejectedRequestDoesNotTakeToken() {
+        for (int i = 0; i < 3; i++) {
+            bucket.tryAcquire(start);
+        }
+        bucket.tryAcquire(start);
+        bucket.tryAcquire(start);
+
+        assertEquals(0, bucket.tryAcquire(start + INTERVAL));
+    }
+}
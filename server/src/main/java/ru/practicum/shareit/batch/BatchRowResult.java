@@ -0,0 +1,35 @@
+package ru.practicum.shareit.batch;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+/**
+ * Результат обработки одной строки пакетного запроса. Номер строки считается с нуля.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class BatchRowResult {
+    private int row;
+    private int status;
+    private Long id;
+    private String error;
+
+    public static BatchRowResult created(int row, long id) {
+        return new BatchRowResult(row, HttpStatus.CREATED.value(), id, null);
+    }
+
+    public static BatchRowResult failed(int row, HttpStatus status, String error) {
+        return new BatchRowResult(row, status.value(), null, error);
+    }
+
+    /**
+     * Последняя строка ответа, если тело запроса перестало читаться: row — первая необработанная строка.
+     */
+    public static BatchRowResult aborted(int row) {
+        return failed(row, HttpStatus.BAD_REQUEST,
+                "Тело запроса не удалось дочитать, эта и следующие строки не обработаны.");
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.shareit.batch;
+
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+
+/**
+ * Поэлементное чтение JSON-массива без загрузки его в память. Вместо элемента, который не удалось
+ * разобрать в объект, возвращается null; синтаксическая ошибка в самом массиве прерывает чтение.
+ */
+public class JsonArrayIterator<T> implements Iterator<T> {
+    private final MappingIterator<T> values;
+
+    public JsonArrayIterator(ObjectReader reader, InputStream inputStream) {
+        try {
+            this.values = reader.readValues(inputStream);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            return values.hasNextValue();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        try {
+            return values.nextValue();
+        } catch (JsonMappingException e) {
+            return null;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
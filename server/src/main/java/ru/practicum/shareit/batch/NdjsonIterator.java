@@ -0,0 +1,60 @@
+package ru.practicum.shareit.batch;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectReader;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Построчное чтение потока NDJSON без загрузки его в память. Пустые строки пропускаются,
+ * вместо строки, которую не удалось разобрать, возвращается null.
+ */
+public class NdjsonIterator<T> implements Iterator<T> {
+    private final ObjectReader reader;
+    private final BufferedReader lines;
+    private String nextLine;
+
+    public NdjsonIterator(ObjectReader reader, InputStream inputStream) {
+        this.reader = reader;
+        this.lines = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public boolean hasNext() {
+        try {
+            while (nextLine == null) {
+                String line = lines.readLine();
+                if (line == null) {
+                    return false;
+                }
+                if (!line.isBlank()) {
+                    nextLine = line;
+                }
+            }
+            return true;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public T next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        String line = nextLine;
+        nextLine = null;
+        try {
+            return reader.readValue(line);
+        } catch (JsonProcessingException e) {
+            return null;
+        }
+    }
+}
@@ -1,10 +1,14 @@
 package ru.practicum.shareit.booking.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoFrontend;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.etag.ResourceEtags;
+import ru.practicum.shareit.pagination.PageCursor;
 
 import java.util.List;
 
@@ -13,6 +17,7 @@ import java.util.List;
 @AllArgsConstructor
 public class BookingController {
     private final BookingService bookingService;
+    private final ResourceEtags resourceEtags;
 
     @PostMapping
     public BookingDto add(@RequestHeader("X-Sharer-User-Id") long userId,
@@ -27,23 +32,36 @@ public class BookingController {
     }
 
     @GetMapping("/{bookingId}")
-    public BookingDto findById(@PathVariable long bookingId, @RequestHeader("X-Sharer-User-Id") long userId) {
-        return bookingService.findById(bookingId, userId);
+    public ResponseEntity<BookingDto> findById(@PathVariable long bookingId,
+                                               @RequestHeader("X-Sharer-User-Id") long userId,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                               String ifNoneMatch) {
+        return resourceEtags.get(ResourceEtags.Resource.BOOKING, bookingId, userId, ifNoneMatch,
+                () -> bookingService.findById(bookingId, userId));
     }
 
     @GetMapping
-    public List<BookingDto> findAllBookingsByUserId(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                    @RequestParam String state,
-                                                    @RequestParam int from,
-                                                    @RequestParam int size) {
-        return bookingService.findAllBookingsByUserId(userId, state, from, size);
+    public ResponseEntity<List<BookingDto>> findAllBookingsByUserId(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                                    @RequestParam String state,
+                                                                    @RequestParam int from,
+                                                                    @RequestParam int size,
+                                                                    @RequestParam(required = false) String after) {
+        List<BookingDto> bookings = after == null
+                ? bookingService.findAllBookingsByUserId(userId, state, from, size)
+                : bookingService.findAllBookingsByUserIdAfter(userId, state, after, size);
+        return PageCursor.withNextCursor(bookings, size, b -> new PageCursor(b.getStart(), b.getId()));
     }
 
     @GetMapping("/owner")
-    public List<BookingDto> findAllBookingsByItemOwnerId(@RequestHeader("X-Sharer-User-Id") long userId,
-                                                         @RequestParam String state,
-                                                         @RequestParam int from,
-                                                         @RequestParam int size) {
-        return bookingService.findAllBookingsByItemOwnerId(userId, state, from, size);
+    public ResponseEntity<List<BookingDto>> findAllBookingsByItemOwnerId(
+            @RequestHeader("X-Sharer-User-Id") long userId,
+            @RequestParam String state,
+            @RequestParam int from,
+            @RequestParam int size,
+            @RequestParam(required = false) String after) {
+        List<BookingDto> bookings = after == null
+                ? bookingService.findAllBookingsByItemOwnerId(userId, state, from, size)
+                : bookingService.findAllBookingsByItemOwnerIdAfter(userId, state, after, size);
+        return PageCursor.withNextCursor(bookings, size, b -> new PageCursor(b.getStart(), b.getId()));
     }
 }
@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+import java.time.LocalDateTime;
+
+@Value
+@AllArgsConstructor
+public class IndexedBooking {
+    Long id;
+    Long itemId;
+    Long bookerId;
+    LocalDateTime start;
+    LocalDateTime end;
+}
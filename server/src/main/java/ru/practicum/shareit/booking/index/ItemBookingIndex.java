@@ -0,0 +1,184 @@
+package ru.practicum.shareit.booking.index;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.status.Status;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Одобренные бронирования вещей, упорядоченные по времени начала.
+ * Шкала вещи загружается из базы при первом обращении и затем поддерживается BookingServiceImpl.
+ * Число шкал в памяти ограничено: вытесненная шкала при следующем обращении снова читается из базы.
+ * Индекс и ItemBookingLocks живут в памяти процесса: проверка пересечений рассчитана на один экземпляр
+ * сервера, который один изменяет бронирования в базе.
+ */
+@Component
+public class ItemBookingIndex {
+    private static final Comparator<IndexedBooking> BY_START = Comparator.comparing(IndexedBooking::getStart)
+            .thenComparing(IndexedBooking::getId);
+
+    private final BookingRepository bookingRepository;
+    private final Cache<Long, Timeline> timelines;
+    private final AtomicLong version = new AtomicLong();
+
+    public ItemBookingIndex(BookingRepository bookingRepository, MeterRegistry meterRegistry,
+                            @Value("${shareit.booking-index.maximum-size:10000}") long maximumSize) {
+        this.bookingRepository = bookingRepository;
+        Cache<Long, Timeline> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .recordStats()
+                .build();
+        this.timelines = CaffeineCacheMetrics.monitor(meterRegistry, cache, "item-bookings");
+    }
+
+    public IndexedBooking findLast(long itemId, LocalDateTime now) {
+        return findLast(load(List.of(itemId)).get(itemId), now);
+    }
+
+    public IndexedBooking findNext(long itemId, LocalDateTime now) {
+        return findNext(load(List.of(itemId)).get(itemId), now);
+    }
+
+    public Map<Long, IndexedBooking> findLast(Collection<Long> itemIds, LocalDateTime now) {
+        Map<Long, IndexedBooking> result = new HashMap<>();
+        load(itemIds).forEach((itemId, timeline) -> {
+            IndexedBooking booking = findLast(timeline, now);
+            if (booking != null) {
+                result.put(itemId, booking);
+            }
+        });
+        return result;
+    }
+
+    public Map<Long, IndexedBooking> findNext(Collection<Long> itemIds, LocalDateTime now) {
+        Map<Long, IndexedBooking> result = new HashMap<>();
+        load(itemIds).forEach((itemId, timeline) -> {
+            IndexedBooking booking = findNext(timeline, now);
+            if (booking != null) {
+                result.put(itemId, booking);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Одобренное бронирование, пересекающееся с интервалом [start, end), кроме бронирования bookingId.
+     * Бронирования, начатые до конца интервала, просматриваются от поздних к ранним. Уже сохранённые интервалы
+     * могут пересекаться друг с другом, поэтому просмотр не останавливается на первом из них, а идёт до начала,
+     * раньше которого даже самое длинное бронирование вещи закончилось бы до start.
+     */
+    public IndexedBooking findOverlap(long itemId, LocalDateTime start, LocalDateTime end, Long bookingId) {
+        Timeline timeline = load(List.of(itemId)).get(itemId);
+        LocalDateTime horizon = start.minus(timeline.longest.get());
+        for (IndexedBooking booking : timeline.bookings.headSet(probe(end, Long.MIN_VALUE), false).descendingSet()) {
+            if (!booking.getStart().isAfter(horizon)) {
+                return null;
+            }
+            if (!Objects.equals(booking.getId(), bookingId) && booking.getEnd().isAfter(start)) {
+                return booking;
+            }
+        }
+        return null;
+    }
+
+    public void update(Booking booking) {
+        version.incrementAndGet();
+        Long bookingId = booking.getId();
+        boolean approved = Status.APPROVED.equals(booking.getStatus());
+        timelines.asMap().computeIfPresent(booking.getItem().getId(), (itemId, timeline) -> {
+            timeline.bookings.removeIf(b -> Objects.equals(b.getId(), bookingId));
+            if (approved) {
+                timeline.add(BookingMapper.toIndexedBooking(booking));
+            }
+            return timeline;
+        });
+    }
+
+    /**
+     * Сбрасывает шкалы, которые затронуло удаление пользователя: его вещей и вещей, которые он бронировал.
+     */
+    public void evictUser(long userId, Collection<Long> ownedItemIds) {
+        version.incrementAndGet();
+        timelines.invalidateAll(ownedItemIds);
+        timelines.asMap().values().removeIf(timeline -> timeline.bookings.stream()
+                .anyMatch(booking -> Objects.equals(booking.getBookerId(), userId)));
+    }
+
+    private IndexedBooking findLast(Timeline timeline, LocalDateTime now) {
+        return timeline.bookings.lower(probe(now, Long.MIN_VALUE));
+    }
+
+    private IndexedBooking findNext(Timeline timeline, LocalDateTime now) {
+        return timeline.bookings.higher(probe(now, Long.MAX_VALUE));
+    }
+
+    private Map<Long, Timeline> load(Collection<Long> itemIds) {
+        Map<Long, Timeline> result = new HashMap<>();
+        List<Long> missingIds = new ArrayList<>();
+        for (Long itemId : itemIds) {
+            Timeline timeline = timelines.getIfPresent(itemId);
+            if (timeline != null) {
+                result.put(itemId, timeline);
+            } else {
+                missingIds.add(itemId);
+            }
+        }
+        if (missingIds.isEmpty()) {
+            return result;
+        }
+        long loadedVersion = version.get();
+        Map<Long, Timeline> loaded = new HashMap<>();
+        for (Long itemId : missingIds) {
+            loaded.put(itemId, new Timeline());
+        }
+        for (IndexedBooking booking : bookingRepository.findIndexedBookings(missingIds, Status.APPROVED)) {
+            loaded.get(booking.getItemId()).add(booking);
+        }
+        // Если за время чтения бронирования менялись, прочитанная шкала используется только для этого запроса.
+        loaded.forEach((itemId, timeline) -> {
+            Timeline cached = timelines.asMap().compute(itemId, (id, existing) ->
+                    existing != null || version.get() != loadedVersion ? existing : timeline);
+            result.put(itemId, cached != null ? cached : timeline);
+        });
+        return result;
+    }
+
+    private static IndexedBooking probe(LocalDateTime time, long id) {
+        return new IndexedBooking(id, null, null, time, null);
+    }
+
+    /**
+     * Шкала вещи и длительность самого длинного бронирования на ней. Длительность только растёт: после удаления
+     * бронирования граница поиска пересечений остаётся с запасом.
+     */
+    private static class Timeline {
+        private final NavigableSet<IndexedBooking> bookings = new ConcurrentSkipListSet<>(BY_START);
+        private final AtomicReference<Duration> longest = new AtomicReference<>(Duration.ZERO);
+
+        void add(IndexedBooking booking) {
+            Duration duration = Duration.between(booking.getStart(), booking.getEnd());
+            longest.accumulateAndGet(duration, (a, b) -> a.compareTo(b) >= 0 ? a : b);
+            bookings.add(booking);
+        }
+    }
+}
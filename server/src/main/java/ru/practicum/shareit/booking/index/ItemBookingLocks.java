@@ -0,0 +1,38 @@
+package ru.practicum.shareit.booking.index;
+
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Блокировки по вещам, разбитые на фиксированное число полос: операции с разными вещами
+ * почти никогда не ждут друг друга, а число объектов блокировок не растёт с числом вещей.
+ */
+@Component
+public class ItemBookingLocks {
+    private static final int STRIPES = 64;
+
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+
+    public ItemBookingLocks() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    public <T> T withLock(long itemId, Supplier<T> action) {
+        ReentrantLock lock = lockFor(itemId);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    ReentrantLock lockFor(long itemId) {
+        int hash = Long.hashCode(itemId);
+        return locks[(hash ^ (hash >>> 16)) & (STRIPES - 1)];
+    }
+}
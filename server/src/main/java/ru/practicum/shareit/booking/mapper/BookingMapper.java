@@ -4,6 +4,7 @@ import lombok.experimental.UtilityClass;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoForOwner;
 import ru.practicum.shareit.booking.dto.BookingDtoFrontend;
+import ru.practicum.shareit.booking.index.IndexedBooking;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
@@ -35,4 +36,18 @@ public class BookingMapper {
                     booking.getStart(), booking.getEnd());
         }
     }
+
+    public static BookingDtoForOwner toBookingDtoForOwner(IndexedBooking booking) {
+        if (booking == null) {
+            return null;
+        } else {
+            return new BookingDtoForOwner(booking.getId(), booking.getBookerId(), booking.getStart(),
+                    booking.getEnd());
+        }
+    }
+
+    public static IndexedBooking toIndexedBooking(Booking booking) {
+        return new IndexedBooking(booking.getId(), booking.getItem().getId(), booking.getBooker().getId(),
+                booking.getStart(), booking.getEnd());
+    }
 }
@@ -1,46 +1,30 @@
 package ru.practicum.shareit.booking.repository;
 
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.booking.index.IndexedBooking;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.status.Status;
-import ru.practicum.shareit.item.model.Item;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface BookingRepository extends JpaRepository<Booking, Long> {
-    List<Booking> findAllByBookerId(long userId, PageRequest pageRequest);
-
-    List<Booking> findAllByItemOwnerId(long userId, PageRequest pageRequest);
-
-    List<Booking> findAllByBookerIdAndStartIsBeforeAndEndIsAfter(long userId, LocalDateTime startTime,
-                                                                 LocalDateTime endTime, PageRequest pageRequest);
-
-    List<Booking> findAllByItemOwnerIdAndStartIsBeforeAndEndIsAfter(long userId, LocalDateTime startTime,
-                                                                    LocalDateTime endTime, PageRequest pageRequest);
-
-    List<Booking> findAllByBookerIdAndEndIsBefore(long userId, LocalDateTime time, PageRequest pageRequest);
-
-    List<Booking> findAllByItemOwnerIdAndEndIsBefore(long userId, LocalDateTime time, PageRequest pageRequest);
-
-    List<Booking> findAllByBookerIdAndStartIsAfter(long userId, LocalDateTime time, PageRequest pageRequest);
-
-    List<Booking> findAllByItemOwnerIdAndStartIsAfter(long userId, LocalDateTime time, PageRequest pageRequest);
-
-    List<Booking> findAllByBookerIdAndStatus(long userId, Status status, PageRequest pageRequest);
-
-    List<Booking> findAllByItemOwnerIdAndStatus(long itemId, Status status, PageRequest pageRequest);
-
-    Booking findFirstByItemIdAndStartBeforeAndStatus(long itemId, LocalDateTime time, Status status, Sort sort);
-
-    Booking findFirstByItemIdAndStartAfterAndStatus(long itemId, LocalDateTime time, Status status, Sort sort);
-
+public interface BookingRepository extends JpaRepository<Booking, Long>, BookingRepositoryCustom {
     Booking findFirstByItemIdAndBookerIdAndEndIsBeforeAndStatus(long itemId, long userId,
                                                                 LocalDateTime time, Status status);
 
-    List<Booking> findAllByItemIn(List<Item> items);
+    @Query(value = "select new ru.practicum.shareit.booking.index.IndexedBooking(b.id, b.item.id, b.booker.id, " +
+            "b.start, b.end) from Booking b where b.item.id in ?1 and b.status = ?2")
+    List<IndexedBooking> findIndexedBookings(Collection<Long> itemIds, Status status);
+
+    @Query(value = "select new ru.practicum.shareit.booking.index.IndexedBooking(b.id, b.item.id, b.booker.id, " +
+            "b.start, b.end) from Booking b where b.item.id = ?1 and b.status = ?2 and b.end > ?3 and b.start < ?4 " +
+            "order by b.start")
+    List<IndexedBooking> findIndexedBookingsInRange(long itemId, Status status, LocalDateTime from, LocalDateTime to);
+
+    @Query("select b.id from Booking b where b.item.id = ?1")
+    List<Long> findIdsByItemId(long itemId);
 }
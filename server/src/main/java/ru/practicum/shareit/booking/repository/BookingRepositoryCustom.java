@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.repository;
+
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.status.BookingRole;
+import ru.practicum.shareit.booking.status.BookingState;
+import ru.practicum.shareit.pagination.PageCursor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+public interface BookingRepositoryCustom {
+    List<BookingDto> findBookings(BookingRole role, long userId, BookingState state, LocalDateTime now,
+                                  PageCursor after, int offset, int size);
+}
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.booking.repository;
+
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.BookingRole;
+import ru.practicum.shareit.booking.status.BookingState;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.*;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+/**
+ * Единый запрос списков бронирований для всех состояний и ролей. Бронирование, вещь и арендатор
+ * читаются одним SELECT с соединениями и сразу собираются в BookingDto, минуя сущности.
+ */
+public class BookingRepositoryImpl implements BookingRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<BookingDto> findBookings(BookingRole role, long userId, BookingState state, LocalDateTime now,
+                                         PageCursor after, int offset, int size) {
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<Booking> booking = query.from(Booking.class);
+        Join<Booking, Item> item = booking.join("item");
+        Join<Booking, User> booker = booking.join("booker");
+        Path<LocalDateTime> start = booking.get("start");
+        Path<LocalDateTime> end = booking.get("end");
+        Path<Long> id = booking.get("id");
+
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(role == BookingRole.OWNER
+                ? cb.equal(item.get("owner").get("id"), userId)
+                : cb.equal(booking.get("booker").get("id"), userId));
+        switch (state) {
+            case CURRENT:
+                predicates.add(cb.lessThan(start, now));
+                predicates.add(cb.greaterThan(end, now));
+                break;
+            case PAST:
+                predicates.add(cb.lessThan(end, now));
+                break;
+            case FUTURE:
+                predicates.add(cb.greaterThan(start, now));
+                break;
+            case WAITING:
+                predicates.add(cb.equal(booking.get("status"), Status.WAITING));
+                break;
+            case REJECTED:
+                predicates.add(cb.equal(booking.get("status"), Status.REJECTED));
+                break;
+            default:
+                break;
+        }
+        if (after != null) {
+            predicates.add(cb.lessThanOrEqualTo(start, after.getTime()));
+            predicates.add(cb.or(cb.lessThan(start, after.getTime()), cb.lessThan(id, after.getId())));
+        }
+        query.multiselect(id, start, end, booking.get("status"),
+                        booker.get("id"), booker.get("name"), booker.get("email"),
+                        item.get("id"), item.get("name"), item.get("description"), item.get("available"),
+                        item.get("request").get("id"))
+                .where(predicates.toArray(new Predicate[0]))
+                .orderBy(cb.desc(start), cb.desc(id));
+        return entityManager.createQuery(query)
+                .setFirstResult(offset)
+                .setMaxResults(size)
+                .getResultList().stream()
+                .map(BookingRepositoryImpl::toBookingDto)
+                .collect(Collectors.toList());
+    }
+
+    private static BookingDto toBookingDto(Tuple row) {
+        UserDto booker = new UserDto(row.get(4, Long.class), row.get(5, String.class), row.get(6, String.class));
+        ItemDto item = ItemDto.builder()
+                .id(row.get(7, Long.class))
+                .name(row.get(8, String.class))
+                .description(row.get(9, String.class))
+                .available(row.get(10, Boolean.class))
+                .requestId(row.get(11, Long.class))
+                .comments(new ArrayList<>())
+                .build();
+        return new BookingDto(row.get(0, Long.class), booker, item, row.get(1, LocalDateTime.class),
+                row.get(2, LocalDateTime.class), row.get(3, Status.class));
+    }
+}
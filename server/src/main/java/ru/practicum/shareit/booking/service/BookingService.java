@@ -3,8 +3,12 @@ package ru.practicum.shareit.booking.service;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoForOwner;
 import ru.practicum.shareit.booking.dto.BookingDtoFrontend;
+import ru.practicum.shareit.booking.dto.FreeSlotDto;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 public interface BookingService {
 
@@ -14,6 +18,10 @@ public interface BookingService {
 
     List<BookingDto> findAllBookingsByItemOwnerId(long userId, String state, int from, int size);
 
+    List<BookingDto> findAllBookingsByUserIdAfter(long userId, String state, String after, int size);
+
+    List<BookingDto> findAllBookingsByItemOwnerIdAfter(long userId, String state, String after, int size);
+
     BookingDto add(long userId, BookingDtoFrontend bookingDtoFrontend);
 
     BookingDto update(long userId, long bookingId, boolean approved);
@@ -21,4 +29,10 @@ public interface BookingService {
     BookingDtoForOwner getLastBooking(long itemId);
 
     BookingDtoForOwner getNextBooking(long itemId);
+
+    Map<Long, BookingDtoForOwner> getLastBookings(Collection<Long> itemIds);
+
+    Map<Long, BookingDtoForOwner> getNextBookings(Collection<Long> itemIds);
+
+    List<FreeSlotDto> getFreeSlots(long itemId, LocalDateTime from, LocalDateTime to);
 }
@@ -1,26 +1,35 @@
 package ru.practicum.shareit.booking.service;
 
 import lombok.AllArgsConstructor;
-import org.springframework.data.domain.PageRequest;
-import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoForOwner;
 import ru.practicum.shareit.booking.dto.BookingDtoFrontend;
+import ru.practicum.shareit.booking.dto.FreeSlotDto;
+import ru.practicum.shareit.booking.index.IndexedBooking;
+import ru.practicum.shareit.booking.index.ItemBookingIndex;
+import ru.practicum.shareit.booking.index.ItemBookingLocks;
 import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.status.BookingRole;
+import ru.practicum.shareit.booking.status.BookingState;
 import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.etag.ResourceEtags;
 import ru.practicum.shareit.exception.IllegalStatusException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.validation.Valid;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Map;
 
 import static java.lang.String.format;
 
@@ -28,9 +37,10 @@ import static java.lang.String.format;
 @AllArgsConstructor
 public class BookingServiceImpl implements BookingService {
     private final BookingRepository bookingRepository;
+    private final ItemBookingIndex itemBookingIndex;
+    private final ItemBookingLocks itemBookingLocks;
     private final Valid valid;
-    private final Sort sortByStartDesc = Sort.by(Sort.Direction.DESC, "start");
-    private final Sort sortByStartAsc = Sort.by(Sort.Direction.ASC, "start");
+    private final ResourceEtags resourceEtags;
 
     @Override
     public BookingDto findById(long bookingId, long userId) {
@@ -49,67 +59,29 @@ public class BookingServiceImpl implements BookingService {
     @Override
     public List<BookingDto> findAllBookingsByUserId(long userId, String state, int from, int size) {
         valid.checkUser(userId);
-        PageRequest pageRequest = PageRequest.of(from / size, size, sortByStartDesc);
-        List<Booking> bookings;
-        switch (state) {
-            case "ALL":
-                bookings = bookingRepository.findAllByBookerId(userId, pageRequest);
-                break;
-            case "CURRENT":
-                bookings = bookingRepository.findAllByBookerIdAndStartIsBeforeAndEndIsAfter(userId, LocalDateTime.now(),
-                        LocalDateTime.now(), pageRequest);
-                break;
-            case "PAST":
-                bookings = bookingRepository.findAllByBookerIdAndEndIsBefore(userId, LocalDateTime.now(),
-                        pageRequest);
-                break;
-            case "FUTURE":
-                bookings = bookingRepository.findAllByBookerIdAndStartIsAfter(userId, LocalDateTime.now(),
-                        pageRequest);
-                break;
-            case "WAITING":
-                bookings = bookingRepository.findAllByBookerIdAndStatus(userId, Status.WAITING, pageRequest);
-                break;
-            case "REJECTED":
-                bookings = bookingRepository.findAllByBookerIdAndStatus(userId, Status.REJECTED, pageRequest);
-                break;
-            default:
-                throw new IllegalStatusException("Unknown state: UNSUPPORTED_STATUS");
-        }
-        return bookings.stream().map(BookingMapper::toBookingDto).collect(Collectors.toList());
+        return bookingRepository.findBookings(BookingRole.BOOKER, userId, toBookingState(state),
+                LocalDateTime.now(), null, from / size * size, size);
     }
 
     @Override
     public List<BookingDto> findAllBookingsByItemOwnerId(long userId, String state, int from, int size) {
         valid.checkUser(userId);
-        PageRequest pageRequest = PageRequest.of(from / size, size, sortByStartDesc);
-        List<Booking> bookings;
-        switch (state) {
-            case "ALL":
-                bookings = bookingRepository.findAllByItemOwnerId(userId, pageRequest);
-                break;
-            case "CURRENT":
-                bookings = bookingRepository.findAllByItemOwnerIdAndStartIsBeforeAndEndIsAfter(userId,
-                        LocalDateTime.now(), LocalDateTime.now(), pageRequest);
-                break;
-            case "PAST":
-                bookings = bookingRepository.findAllByItemOwnerIdAndEndIsBefore(userId, LocalDateTime.now(),
-                        pageRequest);
-                break;
-            case "FUTURE":
-                bookings = bookingRepository.findAllByItemOwnerIdAndStartIsAfter(userId, LocalDateTime.now(),
-                        pageRequest);
-                break;
-            case "WAITING":
-                bookings = bookingRepository.findAllByItemOwnerIdAndStatus(userId, Status.WAITING, pageRequest);
-                break;
-            case "REJECTED":
-                bookings = bookingRepository.findAllByItemOwnerIdAndStatus(userId, Status.REJECTED, pageRequest);
-                break;
-            default:
-                throw new IllegalStatusException("Unknown state: UNSUPPORTED_STATUS");
-        }
-        return bookings.stream().map(BookingMapper::toBookingDto).collect(Collectors.toList());
+        return bookingRepository.findBookings(BookingRole.OWNER, userId, toBookingState(state),
+                LocalDateTime.now(), null, from / size * size, size);
+    }
+
+    @Override
+    public List<BookingDto> findAllBookingsByUserIdAfter(long userId, String state, String after, int size) {
+        valid.checkUser(userId);
+        return bookingRepository.findBookings(BookingRole.BOOKER, userId, toBookingState(state),
+                LocalDateTime.now(), PageCursor.decodeWithTime(after), 0, size);
+    }
+
+    @Override
+    public List<BookingDto> findAllBookingsByItemOwnerIdAfter(long userId, String state, String after, int size) {
+        valid.checkUser(userId);
+        return bookingRepository.findBookings(BookingRole.OWNER, userId, toBookingState(state),
+                LocalDateTime.now(), PageCursor.decodeWithTime(after), 0, size);
     }
 
     @Override
@@ -127,7 +99,9 @@ public class BookingServiceImpl implements BookingService {
         booking.setItem(item);
         booking.setBooker(booker);
         booking.setStatus(Status.WAITING);
+        checkNoOverlap(booking);
         bookingRepository.save(booking);
+        itemBookingIndex.update(booking);
         return BookingMapper.toBookingDto(booking);
     }
 
@@ -153,19 +127,81 @@ public class BookingServiceImpl implements BookingService {
             throw new NotFoundException(format("Пользователь с id = %s не является владельцем вещи "
                     + "и не имеет прав согласовывать бронирование", userId));
         }
-        return BookingMapper.toBookingDto(bookingRepository.save(booking));
+        // Проверка пересечений и сохранение под блокировкой вещи, чтобы два одобрения не прошли одновременно.
+        Booking bookingAfterSave = itemBookingLocks.withLock(booking.getItem().getId(), () -> {
+            if (Status.APPROVED.equals(booking.getStatus())) {
+                checkNoOverlap(booking);
+            }
+            Booking saved = bookingRepository.save(booking);
+            itemBookingIndex.update(saved);
+            return saved;
+        });
+        resourceEtags.evict(ResourceEtags.Resource.BOOKING, bookingId);
+        resourceEtags.evict(ResourceEtags.Resource.ITEM, bookingAfterSave.getItem().getId());
+        return BookingMapper.toBookingDto(bookingAfterSave);
     }
 
     @Override
     public BookingDtoForOwner getLastBooking(long itemId) {
-        return BookingMapper.toBookingDtoForOwner(bookingRepository.findFirstByItemIdAndStartBeforeAndStatus(itemId,
-                LocalDateTime.now(), Status.APPROVED, sortByStartDesc));
+        return BookingMapper.toBookingDtoForOwner(itemBookingIndex.findLast(itemId, LocalDateTime.now()));
     }
 
     @Override
     public BookingDtoForOwner getNextBooking(long itemId) {
-        return BookingMapper.toBookingDtoForOwner(bookingRepository.findFirstByItemIdAndStartAfterAndStatus(itemId,
-                LocalDateTime.now(), Status.APPROVED, sortByStartAsc));
+        return BookingMapper.toBookingDtoForOwner(itemBookingIndex.findNext(itemId, LocalDateTime.now()));
+    }
+
+    @Override
+    public Map<Long, BookingDtoForOwner> getLastBookings(Collection<Long> itemIds) {
+        return toBookingDtoForOwnerMap(itemBookingIndex.findLast(itemIds, LocalDateTime.now()));
+    }
+
+    @Override
+    public Map<Long, BookingDtoForOwner> getNextBookings(Collection<Long> itemIds) {
+        return toBookingDtoForOwnerMap(itemBookingIndex.findNext(itemIds, LocalDateTime.now()));
+    }
+
+    @Override
+    public List<FreeSlotDto> getFreeSlots(long itemId, LocalDateTime from, LocalDateTime to) {
+        if (!from.isBefore(to)) {
+            throw new ValidationException("Начало периода должно быть раньше его окончания");
+        }
+        List<IndexedBooking> bookings = bookingRepository.findIndexedBookingsInRange(itemId, Status.APPROVED,
+                from, to);
+        List<FreeSlotDto> slots = new ArrayList<>();
+        LocalDateTime freeFrom = from;
+        for (IndexedBooking booking : bookings) {
+            if (booking.getStart().isAfter(freeFrom)) {
+                slots.add(new FreeSlotDto(freeFrom, booking.getStart()));
+            }
+            if (booking.getEnd().isAfter(freeFrom)) {
+                freeFrom = booking.getEnd();
+            }
+        }
+        if (freeFrom.isBefore(to)) {
+            slots.add(new FreeSlotDto(freeFrom, to));
+        }
+        return slots;
+    }
+
+    private void checkNoOverlap(Booking booking) {
+        IndexedBooking overlap = itemBookingIndex.findOverlap(booking.getItem().getId(), booking.getStart(),
+                booking.getEnd(), booking.getId());
+        if (overlap != null) {
+            throw new ValidationException(format("Вещь уже забронирована с %s по %s", overlap.getStart(),
+                    overlap.getEnd()));
+        }
+    }
+
+    private static BookingState toBookingState(String state) {
+        return BookingState.from(state).orElseThrow(() ->
+                new IllegalStatusException("Unknown state: UNSUPPORTED_STATUS"));
+    }
+
+    private static Map<Long, BookingDtoForOwner> toBookingDtoForOwnerMap(Map<Long, IndexedBooking> bookings) {
+        Map<Long, BookingDtoForOwner> result = new HashMap<>();
+        bookings.forEach((itemId, booking) -> result.put(itemId, BookingMapper.toBookingDtoForOwner(booking)));
+        return result;
     }
 
 }
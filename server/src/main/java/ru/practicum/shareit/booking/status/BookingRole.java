@@ -0,0 +1,6 @@
+package ru.practicum.shareit.booking.status;
+
+public enum BookingRole {
+    BOOKER,
+    OWNER
+}
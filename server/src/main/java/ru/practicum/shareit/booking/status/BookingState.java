@@ -0,0 +1,16 @@
+package ru.practicum.shareit.booking.status;
+
+import java.util.Optional;
+
+public enum BookingState {
+    ALL, CURRENT, PAST, FUTURE, WAITING, REJECTED;
+
+    public static Optional<BookingState> from(String stringState) {
+        for (BookingState state : values()) {
+            if (state.name().equals(stringState)) {
+                return Optional.of(state);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,49 @@
+package ru.practicum.shareit.config;
+
+import org.springframework.boot.autoconfigure.task.TaskExecutionAutoConfiguration;
+import org.springframework.boot.web.embedded.tomcat.TomcatProtocolHandlerCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.task.AsyncTaskExecutor;
+import org.springframework.core.task.support.TaskExecutorAdapter;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Профиль virtual-threads: запросы Tomcat и асинхронные ответы MVC (выгрузка пользователей потоком)
+ * выполняются в виртуальных потоках, по одному на задачу. Репозитории JPA вызываются в потоке запроса;
+ * драйвер PostgreSQL ждёт ответа базы без synchronized (версия 42.6 и новее), поэтому само ожидание
+ * не закрепляет поток-носитель. Блоки synchronized в Hibernate и пуле соединений на пути запроса ещё могут
+ * закреплять его — проверяется запуском с -Djdk.tracePinnedThreads=full. Число одновременных обращений
+ * к базе по-прежнему ограничивает пул соединений.
+ * Сборка остаётся под Java 11; профиль включается при запуске на Java 21 или новее:
+ * -Dspring.profiles.active=virtual-threads.
+ */
+@Configuration
+@Profile("virtual-threads")
+public class VirtualThreadConfig {
+
+    @Bean(name = TaskExecutionAutoConfiguration.APPLICATION_TASK_EXECUTOR_BEAN_NAME)
+    public AsyncTaskExecutor applicationTaskExecutor() {
+        return new TaskExecutorAdapter(newVirtualThreadPerTaskExecutor());
+    }
+
+    @Bean
+    public TomcatProtocolHandlerCustomizer<?> virtualThreadProtocolHandlerCustomizer(
+            AsyncTaskExecutor applicationTaskExecutor) {
+        return protocolHandler -> protocolHandler.setExecutor(applicationTaskExecutor);
+    }
+
+    /**
+     * Сборка идёт под Java 11, поэтому исполнитель виртуальных потоков создаётся через отражение.
+     */
+    private static ExecutorService newVirtualThreadPerTaskExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Профиль virtual-threads требует Java 21 или новее", e);
+        }
+    }
+}
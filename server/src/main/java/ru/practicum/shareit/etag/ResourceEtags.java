@@ -0,0 +1,183 @@
+package ru.practicum.shareit.etag;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.util.DigestUtils;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * ETag отдельных вещей, бронирований и запросов. ETag — хэш представления ресурса для пользователя,
+ * он запоминается в памяти процесса, поэтому запрос с актуальным If-None-Match получает 304 без обращения
+ * к базе. Изменяющие ресурсы сервисы сбрасывают записи явно; ETag, вычисление которого пересеклось
+ * со сбросом, не запоминается. Записи разложены по ресурсам, поэтому сброс ресурса затрагивает только
+ * его записи для разных пользователей.
+ */
+@Component
+public class ResourceEtags {
+    private final ObjectMapper objectMapper;
+    private final Cache<Key, Entry> etags;
+    private final Map<ResourceId, Set<Key>> keysByResource = new ConcurrentHashMap<>();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public ResourceEtags(ObjectMapper objectMapper, MeterRegistry meterRegistry,
+                         @Value("${shareit.etag.maximum-size:10000}") long maximumSize,
+                         @Value("${shareit.etag.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.objectMapper = objectMapper;
+        Cache<Key, Entry> cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .evictionListener((Key key, Entry entry, RemovalCause cause) -> unindex(key))
+                .recordStats()
+                .build();
+        this.etags = CaffeineCacheMetrics.monitor(meterRegistry, cache, "etags");
+    }
+
+    public <T> ResponseEntity<T> get(Resource resource, long id, long userId, String ifNoneMatch,
+                                     Supplier<T> loader) {
+        return get(resource, id, userId, ifNoneMatch, loader, body -> null);
+    }
+
+    /**
+     * Отвечает 304, если If-None-Match совпал с запомненным ETag, иначе загружает ресурс. Ответ с новым ETag
+     * MVC тоже превращает в 304, если тот совпал с If-None-Match. validUntil — момент, после которого
+     * представление меняется само, без изменяющих запросов (например, следующее бронирование становится
+     * последним); null, если такого момента нет.
+     */
+    public <T> ResponseEntity<T> get(Resource resource, long id, long userId, String ifNoneMatch,
+                                     Supplier<T> loader, Function<T, LocalDateTime> validUntil) {
+        Key key = new Key(new ResourceId(resource, id), userId);
+        Entry cached = etags.getIfPresent(key);
+        if (cached != null && cached.isValid(LocalDateTime.now()) && matches(ifNoneMatch, cached.getEtag())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(cached.getEtag()).build();
+        }
+        long evictionsBeforeLoad = evictions.get();
+        T body = loader.get();
+        String etag = etagOf(body);
+        if (evictions.get() == evictionsBeforeLoad) {
+            put(key, new Entry(etag, validUntil.apply(body)));
+        }
+        return ResponseEntity.ok().eTag(etag).body(body);
+    }
+
+    /**
+     * Сбрасывает ETag ресурса для всех пользователей.
+     */
+    public void evict(Resource resource, long id) {
+        evictions.incrementAndGet();
+        invalidate(new ResourceId(resource, id));
+    }
+
+    public void evict(Resource resource, Collection<Long> ids) {
+        evictions.incrementAndGet();
+        for (Long id : ids) {
+            invalidate(new ResourceId(resource, id));
+        }
+    }
+
+    public void evictAll() {
+        evictions.incrementAndGet();
+        etags.invalidateAll();
+        keysByResource.clear();
+    }
+
+    private void put(Key key, Entry entry) {
+        // Запись и индекс меняются под блокировкой ключа в кэше, как и при вытеснении этого ключа.
+        etags.asMap().compute(key, (cacheKey, previous) -> {
+            keysByResource.computeIfAbsent(cacheKey.getResourceId(), id -> ConcurrentHashMap.newKeySet())
+                    .add(cacheKey);
+            return entry;
+        });
+    }
+
+    private void invalidate(ResourceId resourceId) {
+        Set<Key> keys = keysByResource.remove(resourceId);
+        if (keys != null) {
+            etags.invalidateAll(keys);
+        }
+    }
+
+    private void unindex(Key key) {
+        keysByResource.computeIfPresent(key.getResourceId(), (id, keys) -> {
+            keys.remove(key);
+            return keys.isEmpty() ? null : keys;
+        });
+    }
+
+    /**
+     * Слабое сравнение, как требуется для If-None-Match: префикс W/ не учитывается.
+     */
+    private static boolean matches(String ifNoneMatch, String etag) {
+        if (ifNoneMatch == null) {
+            return false;
+        }
+        String opaqueTag = stripWeak(etag);
+        for (String candidate : ifNoneMatch.split(",")) {
+            String tag = candidate.trim();
+            if (tag.equals("*") || stripWeak(tag).equals(opaqueTag)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String stripWeak(String etag) {
+        return etag.startsWith("W/") ? etag.substring(2) : etag;
+    }
+
+    /**
+     * Слабый ETag: хэш считается по содержимому ответа, а не по байтам, которые записал конвертер.
+     */
+    private String etagOf(Object body) {
+        try {
+            return "W/\"" + DigestUtils.md5DigestAsHex(objectMapper.writeValueAsBytes(body)) + "\"";
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    public enum Resource {
+        ITEM,
+        BOOKING,
+        REQUEST
+    }
+
+    @lombok.Value
+    private static class ResourceId {
+        Resource resource;
+        long id;
+    }
+
+    @lombok.Value
+    private static class Key {
+        ResourceId resourceId;
+        long userId;
+    }
+
+    @lombok.Value
+    private static class Entry {
+        String etag;
+        LocalDateTime validUntil;
+
+        boolean isValid(LocalDateTime now) {
+            return validUntil == null || now.isBefore(validUntil);
+        }
+    }
+}
@@ -1,13 +1,32 @@
 package ru.practicum.shareit.item.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.AllArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.batch.JsonArrayIterator;
+import ru.practicum.shareit.batch.NdjsonIterator;
+import ru.practicum.shareit.booking.dto.FreeSlotDto;
 import ru.practicum.shareit.comment.dto.CommentDto;
+import ru.practicum.shareit.etag.ResourceEtags;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.pagination.PageCursor;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 
+import static org.springframework.format.annotation.DateTimeFormat.ISO.DATE_TIME;
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
 /**
  * TODO Sprint add-controllers.
  */
@@ -16,17 +35,31 @@ import java.util.List;
 @AllArgsConstructor
 public class ItemController {
     private final ItemService itemService;
+    private final ObjectMapper objectMapper;
+    private final ResourceEtags resourceEtags;
 
+    /**
+     * Для владельца представление меняется, когда наступает следующее бронирование, поэтому ETag действует до него.
+     */
     @GetMapping("{itemId}")
-    public ItemDto getItemById(@RequestHeader("X-Sharer-User-Id") long userId, @PathVariable long itemId) {
-        return itemService.getItemById(userId, itemId);
+    public ResponseEntity<ItemDto> getItemById(@RequestHeader("X-Sharer-User-Id") long userId,
+                                               @PathVariable long itemId,
+                                               @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                               String ifNoneMatch) {
+        return resourceEtags.get(ResourceEtags.Resource.ITEM, itemId, userId, ifNoneMatch,
+                () -> itemService.getItemById(userId, itemId),
+                item -> item.getNextBooking() != null ? item.getNextBooking().getStart() : null);
     }
 
     @GetMapping
-    public List<ItemDto> getItemsByUserId(@RequestHeader("X-Sharer-User-Id") long userId,
-                                          @RequestParam int from,
-                                          @RequestParam int size) {
-        return itemService.getItemsByUserId(userId, from, size);
+    public ResponseEntity<List<ItemDto>> getItemsByUserId(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                          @RequestParam int from,
+                                                          @RequestParam int size,
+                                                          @RequestParam(required = false) String after) {
+        List<ItemDto> items = after == null
+                ? itemService.getItemsByUserId(userId, from, size)
+                : itemService.getItemsByUserIdAfter(userId, after, size);
+        return PageCursor.withNextCursor(items, size, item -> PageCursor.of(item.getId()));
     }
 
     @GetMapping("/search")
@@ -42,16 +75,49 @@ public class ItemController {
         return itemService.addItem(userId, itemDto);
     }
 
+    @PostMapping(value = "/batch", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody addItems(@RequestHeader("X-Sharer-User-Id") long userId,
+                                          InputStream body) {
+        return addItems(userId, new JsonArrayIterator<>(objectMapper.readerFor(ItemDto.class), body));
+    }
+
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody addItemsStream(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                InputStream body) {
+        return addItems(userId, new NdjsonIterator<>(objectMapper.readerFor(ItemDto.class), body));
+    }
+
     @PatchMapping("/{itemId}")
     public ItemDto updateItem(@RequestHeader("X-Sharer-User-Id") long userId,
                               @PathVariable("itemId") long itemId, @RequestBody ItemDto itemDto) {
         return itemService.updateItem(userId, itemId, itemDto);
     }
 
+    @GetMapping("/{itemId}/availability")
+    public List<FreeSlotDto> getAvailability(@RequestHeader("X-Sharer-User-Id") long userId,
+                                             @PathVariable long itemId,
+                                             @RequestParam @DateTimeFormat(iso = DATE_TIME) LocalDateTime from,
+                                             @RequestParam @DateTimeFormat(iso = DATE_TIME) LocalDateTime to) {
+        return itemService.getAvailability(userId, itemId, from, to);
+    }
+
     @PostMapping("/{itemId}/comment")
     public CommentDto addComment(@RequestHeader("X-Sharer-User-Id") long userId,
                                  @PathVariable long itemId, @RequestBody CommentDto commentDto) {
         return itemService.addComment(userId, itemId, commentDto);
     }
 
+    /**
+     * Тело запроса читается, а результаты строк пишутся по мере сохранения, строкой NDJSON на каждую.
+     */
+    private StreamingResponseBody addItems(long userId, Iterator<ItemDto> items) {
+        return outputStream -> itemService.addItems(userId, items, result -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 }
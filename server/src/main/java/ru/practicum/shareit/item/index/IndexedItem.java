@@ -0,0 +1,15 @@
+package ru.practicum.shareit.item.index;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+@Value
+@AllArgsConstructor
+public class IndexedItem {
+    Long id;
+    Long ownerId;
+    Long requestId;
+    String name;
+    String description;
+    Boolean available;
+}
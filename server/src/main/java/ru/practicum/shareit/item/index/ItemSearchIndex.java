@@ -0,0 +1,158 @@
+package ru.practicum.shareit.item.index;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Триграммный инвертированный индекс по названию и описанию вещей для поиска подстроки.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class ItemSearchIndex {
+    static final int GRAM_LENGTH = 3;
+    private static final int WARM_UP_BATCH_SIZE = 1000;
+
+    private final ItemRepository itemRepository;
+    private final Map<Long, IndexedItem> items = new ConcurrentHashMap<>();
+    private final Map<String, Set<Long>> postings = new ConcurrentHashMap<>();
+    private volatile boolean ready;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        long lastId = 0;
+        List<IndexedItem> batch;
+        do {
+            batch = itemRepository.findIndexedItemsAfter(lastId, PageRequest.of(0, WARM_UP_BATCH_SIZE));
+            for (IndexedItem item : batch) {
+                putIfAbsent(item);
+                lastId = item.getId();
+            }
+        } while (batch.size() == WARM_UP_BATCH_SIZE);
+        ready = true;
+        log.info("Поисковый индекс вещей построен: {} вещей, {} триграмм", items.size(), postings.size());
+    }
+
+    public boolean supports(String text) {
+        return ready && text.length() >= GRAM_LENGTH;
+    }
+
+    public List<IndexedItem> search(String text, int from, int size) {
+        List<Set<Long>> lists = grams(text).stream()
+                .map(gram -> postings.getOrDefault(gram, Collections.emptySet()))
+                .sorted(Comparator.comparingInt(Set::size))
+                .collect(Collectors.toList());
+        if (lists.isEmpty() || lists.get(0).isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Set<Long>> others = lists.subList(1, lists.size());
+        return lists.get(0).stream()
+                .filter(id -> others.stream().allMatch(ids -> ids.contains(id)))
+                .map(items::get)
+                .filter(Objects::nonNull)
+                .filter(item -> matches(item, text))
+                .sorted(Comparator.comparing(IndexedItem::getId))
+                .skip(from)
+                .limit(size)
+                .collect(Collectors.toList());
+    }
+
+    public void put(IndexedItem item) {
+        items.compute(item.getId(), (id, previous) -> {
+            reindex(id, grams(previous), grams(item));
+            return item;
+        });
+    }
+
+    public void remove(long itemId) {
+        items.computeIfPresent(itemId, (id, previous) -> {
+            reindex(id, grams(previous), Collections.emptySet());
+            return null;
+        });
+    }
+
+    public void removeByOwner(long ownerId) {
+        items.values().stream()
+                .filter(item -> Objects.equals(item.getOwnerId(), ownerId))
+                .map(IndexedItem::getId)
+                .collect(Collectors.toList())
+                .forEach(this::remove);
+    }
+
+    private void putIfAbsent(IndexedItem item) {
+        items.computeIfAbsent(item.getId(), id -> {
+            reindex(id, Collections.emptySet(), grams(item));
+            return item;
+        });
+    }
+
+    private void reindex(Long id, Set<String> oldGrams, Set<String> newGrams) {
+        for (String gram : oldGrams) {
+            if (!newGrams.contains(gram)) {
+                postings.computeIfPresent(gram, (key, ids) -> {
+                    ids.remove(id);
+                    return ids.isEmpty() ? null : ids;
+                });
+            }
+        }
+        for (String gram : newGrams) {
+            if (!oldGrams.contains(gram)) {
+                postings.compute(gram, (key, ids) -> {
+                    Set<Long> result = ids != null ? ids : ConcurrentHashMap.newKeySet();
+                    result.add(id);
+                    return result;
+                });
+            }
+        }
+    }
+
+    private static boolean matches(IndexedItem item, String text) {
+        return Boolean.TRUE.equals(item.getAvailable())
+                && (contains(item.getName(), text) || contains(item.getDescription(), text));
+    }
+
+    private static boolean contains(String value, String text) {
+        return value != null && value.toLowerCase().contains(text);
+    }
+
+    private static Set<String> grams(IndexedItem item) {
+        if (item == null || !Boolean.TRUE.equals(item.getAvailable())) {
+            return Collections.emptySet();
+        }
+        Set<String> grams = new HashSet<>();
+        addGrams(grams, item.getName());
+        addGrams(grams, item.getDescription());
+        return grams;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        addGrams(grams, text);
+        return grams;
+    }
+
+    private static void addGrams(Set<String> grams, String value) {
+        if (value == null) {
+            return;
+        }
+        String text = value.toLowerCase();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+    }
+}
@@ -2,6 +2,7 @@ package ru.practicum.shareit.item.mapper;
 
 import lombok.experimental.UtilityClass;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.index.IndexedItem;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.ItemRequest;
 
@@ -48,4 +49,21 @@ public class ItemMapper {
                 .build();
     }
 
+    public static IndexedItem toIndexedItem(Item item) {
+        return new IndexedItem(item.getId(), item.getOwner().getId(),
+                item.getRequest() != null ? item.getRequest().getId() : null,
+                item.getName(), item.getDescription(), item.getAvailable());
+    }
+
+    public static ItemDto toItemDto(IndexedItem item) {
+        return ItemDto.builder()
+                .id(item.getId())
+                .name(item.getName())
+                .description(item.getDescription())
+                .available(item.getAvailable())
+                .requestId(item.getRequestId())
+                .comments(new ArrayList<>())
+                .build();
+    }
+
 }
@@ -1,22 +1,40 @@
 package ru.practicum.shareit.item.repository;
 
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
+import ru.practicum.shareit.item.index.IndexedItem;
 import ru.practicum.shareit.item.model.Item;
 
 import java.util.List;
+import java.util.Optional;
 
 @Repository
-public interface ItemRepository extends JpaRepository<Item, Long> {
+public interface ItemRepository extends JpaRepository<Item, Long>, ItemRepositoryCustom {
     List<Item> findAllByOwnerId(long userId, PageRequest pageRequest);
 
-    @Query(value = "select i from Item i where lower(i.name) like %?1% or lower(i.description) like %?1% " +
+    @Query(value = "select i from Item i where i.owner.id = ?1 and i.id > ?2 order by i.id")
+    List<Item> findAllByOwnerIdAfter(long userId, long itemId, PageRequest pageRequest);
+
+    @Query(value = "select i.id from Item i where i.owner.id = ?1")
+    List<Long> findIdsByOwnerId(long userId);
+
+    @Query(value = "select i from Item i where (lower(i.name) like %?1% or lower(i.description) like %?1%) " +
             "and i.available=true")
     List<Item> getItemsByText(String text, PageRequest pageRequest);
 
+    @Query(value = "select i from Item i where i.request.id in ?1")
     List<Item> findAllByRequestIdIn(List<Long> requestIds);
 
+    @Query(value = "select i from Item i where i.request.id = ?1")
     List<Item> findAllByRequestId(long requestId);
+
+    @Query(value = "select new ru.practicum.shareit.item.index.IndexedItem(i.id, i.owner.id, r.id, i.name, " +
+            "i.description, i.available) from Item i left join i.request r where i.id > ?1 order by i.id")
+    List<IndexedItem> findIndexedItemsAfter(long itemId, PageRequest pageRequest);
+
+    @EntityGraph(attributePaths = {"owner", "request"})
+    Optional<Item> findWithOwnerById(long itemId);
 }
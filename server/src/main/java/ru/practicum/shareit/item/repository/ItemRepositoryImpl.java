@@ -0,0 +1,26 @@
+package ru.practicum.shareit.item.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.item.model.Item;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ * Вставка пачки новых вещей в одной транзакции. Строки уходят в базу пакетами JDBC,
+ * после чего контекст очищается, чтобы при длинном импорте в нём не копились сущности.
+ */
+public class ItemRepositoryImpl implements ItemRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public List<Item> insertAll(List<Item> items) {
+        items.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        return items;
+    }
+}
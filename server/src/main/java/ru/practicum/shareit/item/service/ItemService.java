@@ -1,10 +1,15 @@
 package ru.practicum.shareit.item.service;
 
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.batch.BatchRowResult;
+import ru.practicum.shareit.booking.dto.FreeSlotDto;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 @Service
 public interface ItemService {
@@ -12,11 +17,17 @@ public interface ItemService {
 
     List<ItemDto> getItemsByUserId(long userId, int from, int size);
 
+    List<ItemDto> getItemsByUserIdAfter(long userId, String after, int size);
+
     List<ItemDto> getItemsByText(String text, int from, int size);
 
     ItemDto addItem(long userId, ItemDto itemDto);
 
+    void addItems(long userId, Iterator<ItemDto> items, Consumer<BatchRowResult> consumer);
+
     ItemDto updateItem(long userId, long itemId, ItemDto itemDto);
 
     CommentDto addComment(long userId, long itemId, CommentDto commentDto);
+
+    List<FreeSlotDto> getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to);
 }
@@ -1,10 +1,15 @@
 package ru.practicum.shareit.item.service;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.batch.BatchRowResult;
 import ru.practicum.shareit.booking.dto.BookingDtoForOwner;
-import ru.practicum.shareit.booking.mapper.BookingMapper;
+import ru.practicum.shareit.booking.dto.FreeSlotDto;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.booking.service.BookingService;
@@ -13,31 +18,51 @@ import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.comment.mapper.CommentMapper;
 import ru.practicum.shareit.comment.model.Comment;
 import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.etag.ResourceEtags;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.validation.Valid;
 
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
+import static java.lang.String.format;
+
 @Service
 @RequiredArgsConstructor
 public class ItemServiceImpl implements ItemService {
+    private static final int BATCH_CHUNK_SIZE = 500;
 
     private final ItemRepository itemRepository;
     private final BookingService bookingService;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
+    private final ItemRequestRepository itemRequestRepository;
+    private final ItemSearchIndex itemSearchIndex;
     private final Valid valid;
+    private final ResourceEtags resourceEtags;
+    private final Sort sortById = Sort.by(Sort.Direction.ASC, "id");
 
     @Override
     public ItemDto getItemById(long userId, long itemId) {
@@ -57,35 +82,16 @@ public class ItemServiceImpl implements ItemService {
     @Override
     public List<ItemDto> getItemsByUserId(long userId, int from, int size) {
         valid.checkUser(userId);
-        PageRequest pageRequest = PageRequest.of(from, size);
-        List<Item> items = itemRepository.findAllByOwnerId(userId, pageRequest);
-        List<ItemDto> itemsDto = items.stream()
-                .sorted(Comparator.comparing(Item::getId))
-                .map(ItemMapper::toItemDtoForOwner).collect(Collectors.toList());
-        List<Booking> bookings = bookingRepository.findAllByItemIn(items);
-        List<Comment> comments = commentRepository.findAllByItemIn(items);
-        for (ItemDto item : itemsDto) {
-            List<Booking> bookingByItem = bookings.stream()
-                    .filter(booking -> Objects.equals(booking.getItem().getId(), item.getId()))
-                    .collect(Collectors.toList());
-            item.setLastBooking(bookingByItem.stream()
-                    .filter(booking -> booking.getStart().isBefore(LocalDateTime.now()))
-                    .filter(booking -> Objects.equals(booking.getStatus(), Status.APPROVED))
-                    .map(BookingMapper::toBookingDtoForOwner)
-                    .max(Comparator.comparing(BookingDtoForOwner::getEnd))
-                    .orElse(null));
-            item.setNextBooking(bookingByItem.stream()
-                    .filter(booking -> booking.getStart().isAfter(LocalDateTime.now()))
-                    .filter(booking -> Objects.equals(booking.getStatus(), Status.APPROVED))
-                    .map(BookingMapper::toBookingDtoForOwner)
-                    .min(Comparator.comparing(BookingDtoForOwner::getStart))
-                    .orElse(null));
-            item.setComments(comments.stream()
-                    .filter(comment -> Objects.equals(comment.getItem().getId(), item.getId()))
-                    .map(CommentMapper::toCommentDto)
-                    .collect(Collectors.toList()));
-        }
-        return itemsDto;
+        PageRequest pageRequest = PageRequest.of(from / size, size, sortById);
+        return toItemDtosForOwner(itemRepository.findAllByOwnerId(userId, pageRequest));
+    }
+
+    @Override
+    public List<ItemDto> getItemsByUserIdAfter(long userId, String after, int size) {
+        valid.checkUser(userId);
+        List<Item> items = itemRepository.findAllByOwnerIdAfter(userId, PageCursor.decode(after).getId(),
+                PageRequest.of(0, size));
+        return toItemDtosForOwner(items);
     }
 
     @Override
@@ -93,8 +99,13 @@ public class ItemServiceImpl implements ItemService {
         if (text.isBlank()) {
             return Collections.emptyList();
         }
-        PageRequest pageRequest = PageRequest.of(from, size);
-        List<Item> items = itemRepository.getItemsByText(text.toLowerCase(), pageRequest);
+        String query = text.toLowerCase();
+        if (itemSearchIndex.supports(query)) {
+            return itemSearchIndex.search(query, from / size * size, size).stream()
+                    .map(ItemMapper::toItemDto).collect(Collectors.toList());
+        }
+        PageRequest pageRequest = PageRequest.of(from / size, size);
+        List<Item> items = itemRepository.getItemsByText(query, pageRequest);
         return items.stream().map(ItemMapper::toItemDto).collect(Collectors.toList());
     }
 
@@ -104,13 +115,66 @@ public class ItemServiceImpl implements ItemService {
         Item item = ItemMapper.toItem(itemDto);
         item.setOwner(owner);
         Item itemAfterSave = itemRepository.save(item);
+        itemSearchIndex.put(ItemMapper.toIndexedItem(itemAfterSave));
+        evictRequestEtag(itemAfterSave);
         return ItemMapper.toItemDto(itemAfterSave);
     }
 
+    /**
+     * Строки сохраняются окнами по BATCH_CHUNK_SIZE строк входа. Результаты окна отдаются потребителю в порядке строк
+     * сразу после его сохранения, поэтому в памяти не копятся ни строки, ни результаты всего импорта.
+     */
+    @Override
+    public void addItems(long userId, Iterator<ItemDto> items, Consumer<BatchRowResult> consumer) {
+        User owner = valid.checkUser(userId);
+        List<BatchRowResult> results = new ArrayList<>();
+        Map<Integer, Item> chunk = new LinkedHashMap<>();
+        int row = 0;
+        while (true) {
+            ItemDto itemDto;
+            try {
+                if (!items.hasNext()) {
+                    break;
+                }
+                itemDto = items.next();
+            } catch (UncheckedIOException e) {
+                // Синтаксическая ошибка или обрыв тела: прочитанное сохраняется, об остальном сообщает последняя строка.
+                flushChunk(chunk, results, consumer);
+                consumer.accept(BatchRowResult.aborted(row));
+                return;
+            }
+            String error = validationBeforeBatchAdd(itemDto);
+            if (error != null) {
+                results.add(BatchRowResult.failed(row, HttpStatus.BAD_REQUEST, error));
+            } else {
+                Item item = ItemMapper.toItem(itemDto);
+                item.setId(null);
+                item.setOwner(owner);
+                chunk.put(row, item);
+            }
+            row++;
+            if (row % BATCH_CHUNK_SIZE == 0) {
+                flushChunk(chunk, results, consumer);
+            }
+        }
+        flushChunk(chunk, results, consumer);
+    }
+
     @Override
     public ItemDto updateItem(long userId, long itemId, ItemDto itemDto) {
-        Item item = validationBeforeUpdate(userId, itemId, itemDto);
-        return ItemMapper.toItemDto(itemRepository.save(item));
+        Item item;
+        try {
+            item = itemRepository.save(validationBeforeUpdate(userId, itemId, itemDto));
+        } finally {
+            valid.evictItem(itemId);
+        }
+        itemSearchIndex.put(ItemMapper.toIndexedItem(item));
+        // Вещь входит в ответы на запрос и на свои бронирования в любом статусе, поэтому их id берутся из базы,
+        // а не из индекса одобренных бронирований.
+        resourceEtags.evict(ResourceEtags.Resource.ITEM, itemId);
+        resourceEtags.evict(ResourceEtags.Resource.BOOKING, bookingRepository.findIdsByItemId(itemId));
+        evictRequestEtag(item);
+        return ItemMapper.toItemDto(item);
     }
 
     @Override
@@ -119,12 +183,124 @@ public class ItemServiceImpl implements ItemService {
         Item item = valid.checkItem(itemId);
         checkAuthor(userId, itemId);
         Comment comment = commentRepository.save(CommentMapper.toComment(commentDto, author, item));
+        resourceEtags.evict(ResourceEtags.Resource.ITEM, itemId);
         return CommentMapper.toCommentDto(comment);
     }
 
+    @Override
+    public List<FreeSlotDto> getAvailability(long userId, long itemId, LocalDateTime from, LocalDateTime to) {
+        valid.checkUser(userId);
+        valid.checkItem(itemId);
+        return bookingService.getFreeSlots(itemId, from, to);
+    }
+
+    private List<ItemDto> toItemDtosForOwner(List<Item> items) {
+        List<ItemDto> itemsDto = items.stream()
+                .sorted(Comparator.comparing(Item::getId))
+                .map(ItemMapper::toItemDtoForOwner).collect(Collectors.toList());
+        List<Long> itemIds = items.stream().map(Item::getId).collect(Collectors.toList());
+        Map<Long, BookingDtoForOwner> lastBookings = bookingService.getLastBookings(itemIds);
+        Map<Long, BookingDtoForOwner> nextBookings = bookingService.getNextBookings(itemIds);
+        Map<Long, List<CommentDto>> comments = commentRepository.findAllByItemIn(items).stream()
+                .collect(Collectors.groupingBy(comment -> comment.getItem().getId(),
+                        Collectors.mapping(CommentMapper::toCommentDto, Collectors.toList())));
+        for (ItemDto item : itemsDto) {
+            item.setLastBooking(lastBookings.get(item.getId()));
+            item.setNextBooking(nextBookings.get(item.getId()));
+            item.setComments(comments.getOrDefault(item.getId(), new ArrayList<>()));
+        }
+        return itemsDto;
+    }
+
+    private void flushChunk(Map<Integer, Item> chunk, List<BatchRowResult> results,
+                            Consumer<BatchRowResult> consumer) {
+        saveChunk(chunk, results);
+        results.sort(Comparator.comparingInt(BatchRowResult::getRow));
+        results.forEach(consumer);
+        chunk.clear();
+        results.clear();
+    }
+
+    /**
+     * Каждая пачка сохраняется в своей транзакции: ошибка в одной пачке не откатывает уже сохранённые.
+     */
+    private void saveChunk(Map<Integer, Item> chunk, List<BatchRowResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<Long> requestIds = chunk.values().stream()
+                .map(Item::getRequest)
+                .filter(Objects::nonNull)
+                .map(ItemRequest::getId)
+                .collect(Collectors.toSet());
+        Set<Long> existingRequestIds = requestIds.isEmpty()
+                ? Collections.emptySet()
+                : new HashSet<>(itemRequestRepository.findExistingIds(requestIds));
+        Map<Integer, Item> rows = new LinkedHashMap<>();
+        chunk.forEach((row, item) -> {
+            if (item.getRequest() != null && !existingRequestIds.contains(item.getRequest().getId())) {
+                results.add(BatchRowResult.failed(row, HttpStatus.NOT_FOUND,
+                        format("Запроса с id = %s нет в базе", item.getRequest().getId())));
+            } else {
+                rows.put(row, item);
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            itemRepository.insertAll(new ArrayList<>(rows.values()));
+        } catch (DataAccessException e) {
+            // Пачка откатилась целиком: строки сохраняются по одной, чтобы ошибка осталась только у своей строки.
+            rows.forEach((row, item) -> results.add(saveRow(row, item)));
+            return;
+        }
+        rows.forEach((row, item) -> {
+            itemSearchIndex.put(ItemMapper.toIndexedItem(item));
+            evictRequestEtag(item);
+            results.add(BatchRowResult.created(row, item.getId()));
+        });
+    }
+
+    private BatchRowResult saveRow(int row, Item item) {
+        item.setId(null);
+        try {
+            Item savedItem = itemRepository.save(item);
+            itemSearchIndex.put(ItemMapper.toIndexedItem(savedItem));
+            evictRequestEtag(savedItem);
+            return BatchRowResult.created(row, savedItem.getId());
+        } catch (DataIntegrityViolationException e) {
+            return BatchRowResult.failed(row, HttpStatus.BAD_REQUEST, "Вещь не удовлетворяет ограничениям базы");
+        } catch (DataAccessException e) {
+            return BatchRowResult.failed(row, HttpStatus.INTERNAL_SERVER_ERROR, "Не удалось сохранить вещь");
+        }
+    }
+
+    private void evictRequestEtag(Item item) {
+        Long requestId = item.getRequest() != null ? item.getRequest().getId() : null;
+        if (requestId != null) {
+            resourceEtags.evict(ResourceEtags.Resource.REQUEST, requestId);
+        }
+    }
+
+    private static String validationBeforeBatchAdd(ItemDto itemDto) {
+        if (itemDto == null) {
+            return "Строку не удалось разобрать как вещь.";
+        } else if (itemDto.getName() == null || itemDto.getName().isBlank()) {
+            return "Имя вещи не должно быть пустым.";
+        } else if (itemDto.getDescription() == null || itemDto.getDescription().isBlank()) {
+            return "Описание вещи не должно быть пустым.";
+        } else if (itemDto.getAvailable() == null) {
+            return "Нужно указать, доступна ли вещь.";
+        }
+        return null;
+    }
+
     private Item validationBeforeUpdate(long userId, long itemId, ItemDto itemDto) {
         valid.checkUser(userId);
-        Item item = valid.checkItem(itemId);
+        // Изменяется свежая сущность, а не общая из кэша Valid: до сброса её видят другие запросы.
+        Item item = itemRepository.findWithOwnerById(itemId).orElseThrow(() ->
+                new NotFoundException(format("Вещи с id = %s нет в базе", itemId)));
         User owner = item.getOwner();
         if (owner.getId() != userId) {
             throw new NotFoundException("Пользователь не является собственником вещи и не имеет прав на её изменение.");
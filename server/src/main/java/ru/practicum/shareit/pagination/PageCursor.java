@@ -0,0 +1,64 @@
+package ru.practicum.shareit.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Value;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.shareit.exception.ValidationException;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Позиция последней выданной записи для постраничной выборки по ключу (time, id).
+ * Клиенту передаётся в заголовке X-Next-Cursor и возвращается в параметре after.
+ */
+@Value
+@AllArgsConstructor
+public class PageCursor {
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final String SEPARATOR = "|";
+
+    LocalDateTime time;
+    long id;
+
+    public static PageCursor of(long id) {
+        return new PageCursor(null, id);
+    }
+
+    public static PageCursor decode(String token) {
+        try {
+            String value = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = value.indexOf(SEPARATOR);
+            String time = value.substring(0, separator);
+            return new PageCursor(time.isEmpty() ? null : LocalDateTime.parse(time),
+                    Long.parseLong(value.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new ValidationException("Некорректный параметр after: " + token);
+        }
+    }
+
+    public static PageCursor decodeWithTime(String token) {
+        PageCursor cursor = decode(token);
+        if (cursor.getTime() == null) {
+            throw new ValidationException("Некорректный параметр after: " + token);
+        }
+        return cursor;
+    }
+
+    public String encode() {
+        String value = (time != null ? time.toString() : "") + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static <T> ResponseEntity<List<T>> withNextCursor(List<T> page, int size, Function<T, PageCursor> cursor) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (!page.isEmpty() && page.size() >= size) {
+            response.header(NEXT_CURSOR_HEADER, cursor.apply(page.get(page.size() - 1)).encode());
+        }
+        return response.body(page);
+    }
+}
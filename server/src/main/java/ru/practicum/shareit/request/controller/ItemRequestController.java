@@ -1,8 +1,12 @@
 package ru.practicum.shareit.request.controller;
 
 import lombok.AllArgsConstructor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import ru.practicum.shareit.etag.ResourceEtags;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.service.ItemRequestService;
 
@@ -14,6 +18,7 @@ import java.util.List;
 @AllArgsConstructor
 public class ItemRequestController {
     private final ItemRequestService itemRequestService;
+    private final ResourceEtags resourceEtags;
 
     @GetMapping
     public List<ItemRequestDto> getByUserId(@RequestHeader("X-Sharer-User-Id") long userId) {
@@ -21,15 +26,23 @@ public class ItemRequestController {
     }
 
     @GetMapping("/all")
-    public List<ItemRequestDto> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
-                                       @RequestParam int from,
-                                       @RequestParam int size) {
-        return itemRequestService.getAll(userId, from, size);
+    public ResponseEntity<List<ItemRequestDto>> getAll(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                       @RequestParam int from,
+                                                       @RequestParam int size,
+                                                       @RequestParam(required = false) String after) {
+        List<ItemRequestDto> requests = after == null
+                ? itemRequestService.getAll(userId, from, size)
+                : itemRequestService.getAllAfter(userId, after, size);
+        return PageCursor.withNextCursor(requests, size, r -> new PageCursor(r.getCreated(), r.getId()));
     }
 
     @GetMapping("/{requestId}")
-    public ItemRequestDto getById(@RequestHeader("X-Sharer-User-Id") long userId, @PathVariable long requestId) {
-        return itemRequestService.getById(userId, requestId);
+    public ResponseEntity<ItemRequestDto> getById(@RequestHeader("X-Sharer-User-Id") long userId,
+                                                  @PathVariable long requestId,
+                                                  @RequestHeader(value = HttpHeaders.IF_NONE_MATCH, required = false)
+                                                  String ifNoneMatch) {
+        return resourceEtags.get(ResourceEtags.Resource.REQUEST, requestId, userId, ifNoneMatch,
+                () -> itemRequestService.getById(userId, requestId));
     }
 
     @PostMapping
@@ -2,15 +2,27 @@ package ru.practicum.shareit.request.repository;
 
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 import ru.practicum.shareit.request.model.ItemRequest;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ItemRequestRepository extends JpaRepository<ItemRequest, Long> {
     List<ItemRequest> findAllByRequesterId(Long requesterId);
 
+    @Query(value = "select r from ItemRequest r where r.requester.id <> ?1")
     List<ItemRequest> findAllByRequesterIdNot(long itemRequesterId, PageRequest page);
 
+    @Query(value = "select r from ItemRequest r where r.requester.id <> ?1 " +
+            "and r.created <= ?2 and (r.created < ?2 or r.id < ?3) order by r.created desc, r.id desc")
+    List<ItemRequest> findAllByRequesterIdNotAfter(long itemRequesterId, LocalDateTime created, long requestId,
+                                                   PageRequest page);
+
+    @Query(value = "select r.id from ItemRequest r where r.id in ?1")
+    List<Long> findExistingIds(Collection<Long> requestIds);
+
 }
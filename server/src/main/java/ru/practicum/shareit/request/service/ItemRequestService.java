@@ -13,5 +13,7 @@ public interface ItemRequestService {
 
     List<ItemRequestDto> getAll(long userId, int from, int size);
 
+    List<ItemRequestDto> getAllAfter(long userId, String after, int size);
+
     ItemRequestDto getById(long userId, long requestId);
 }
@@ -8,6 +8,7 @@ import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.request.dto.ItemRequestDto;
 import ru.practicum.shareit.request.mapper.ItemRequestMapper;
 import ru.practicum.shareit.request.model.ItemRequest;
@@ -15,9 +16,10 @@ import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.validation.Valid;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
-import java.util.Objects;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import static java.lang.String.format;
@@ -55,6 +57,18 @@ public class ItemRequestServiceImpl implements ItemRequestService {
         return addItemsInItemRequest(itemRequests);
     }
 
+    @Override
+    public List<ItemRequestDto> getAllAfter(long userId, String after, int size) {
+        valid.checkUser(userId);
+        PageCursor cursor = PageCursor.decodeWithTime(after);
+        List<ItemRequest> itemRequests = itemRequestRepository.findAllByRequesterIdNotAfter(userId,
+                cursor.getTime(), cursor.getId(), PageRequest.of(0, size));
+        if (itemRequests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        return addItemsInItemRequest(itemRequests);
+    }
+
     @Override
     public ItemRequestDto getById(long userId, long requestId) {
         valid.checkUser(userId);
@@ -71,14 +85,13 @@ public class ItemRequestServiceImpl implements ItemRequestService {
 
     private List<ItemRequestDto> addItemsInItemRequest(List<ItemRequest> itemRequests) {
         List<Long> itemRequestIds = itemRequests.stream().map(ItemRequest::getId).collect(Collectors.toList());
-        List<ItemDto> itemsDto = itemRepository.findAllByRequestIdIn(itemRequestIds).stream().map(ItemMapper::toItemDto)
-                .collect(Collectors.toList());
+        Map<Long, List<ItemDto>> itemsDto = itemRepository.findAllByRequestIdIn(itemRequestIds).stream()
+                .map(ItemMapper::toItemDto)
+                .collect(Collectors.groupingBy(ItemDto::getRequestId));
         List<ItemRequestDto> requestsDto = itemRequests.stream().map(ItemRequestMapper::toItemRequestDto)
                 .collect(Collectors.toList());
         for (ItemRequestDto itemRequestDto : requestsDto) {
-            itemRequestDto.setItems(itemsDto.stream()
-                    .filter(i -> Objects.equals(i.getRequestId(), itemRequestDto.getId()))
-                    .collect(Collectors.toList()));
+            itemRequestDto.setItems(itemsDto.getOrDefault(itemRequestDto.getId(), new ArrayList<>()));
         }
         return requestsDto;
     }
@@ -1,23 +1,57 @@
 package ru.practicum.shareit.user.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.shareit.batch.JsonArrayIterator;
+import ru.practicum.shareit.batch.NdjsonIterator;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
 import java.util.List;
 
+import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.APPLICATION_NDJSON_VALUE;
+
 @RestController
 @RequestMapping(path = "/users")
 @RequiredArgsConstructor
 @Validated
 public class UserController {
     private final UserService userService;
+    private final ObjectMapper objectMapper;
 
     @GetMapping
-    public List<UserDto> getAllUsers() {
-        return userService.findAllUsers();
+    public ResponseEntity<List<UserDto>> getAllUsers(@RequestParam(required = false) Integer from,
+                                                     @RequestParam(required = false) Integer size,
+                                                     @RequestParam(required = false) String after) {
+        if (size == null) {
+            return ResponseEntity.ok(userService.findAllUsers());
+        }
+        List<UserDto> users = after == null
+                ? userService.findUsers(from == null ? 0 : from, size)
+                : userService.findUsersAfter(after, size);
+        return PageCursor.withNextCursor(users, size, user -> PageCursor.of(user.getId()));
+    }
+
+    @GetMapping(value = "/stream", produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamAllUsers() {
+        return outputStream -> userService.streamAllUsers(user -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(user));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
     }
 
     @GetMapping("/{id}")
@@ -30,6 +64,16 @@ public class UserController {
         return userService.addUser(userDto);
     }
 
+    @PostMapping(value = "/batch", consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody addUsers(InputStream body) {
+        return addUsers(new JsonArrayIterator<>(objectMapper.readerFor(UserDto.class), body));
+    }
+
+    @PostMapping(value = "/batch", consumes = APPLICATION_NDJSON_VALUE, produces = APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody addUsersStream(InputStream body) {
+        return addUsers(new NdjsonIterator<>(objectMapper.readerFor(UserDto.class), body));
+    }
+
     @PatchMapping("/{id}")
     public UserDto updateUserDto(@RequestBody UserDto userDto, @PathVariable long id) {
         return userService.updateUser(id, userDto);
@@ -39,4 +83,18 @@ public class UserController {
     public void deleteUser(@PathVariable long id) {
         userService.deleteUser(id);
     }
+
+    /**
+     * Тело запроса читается, а результаты строк пишутся по мере сохранения, строкой NDJSON на каждую.
+     */
+    private StreamingResponseBody addUsers(Iterator<UserDto> users) {
+        return outputStream -> userService.addUsers(users, result -> {
+            try {
+                outputStream.write(objectMapper.writeValueAsBytes(result));
+                outputStream.write('\n');
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
 }
@@ -1,8 +1,35 @@
 package ru.practicum.shareit.user.repository;
 
+import org.springframework.data.domain.PageRequest;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
-public interface UserRepository extends JpaRepository<User, Long> {
+import javax.persistence.QueryHint;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+public interface UserRepository extends JpaRepository<User, Long>, UserRepositoryCustom {
+    int STREAM_FETCH_SIZE = 500;
+
+    boolean existsByEmail(String email);
+
+    @Query(value = "select u.email from User u where u.email in ?1")
+    List<String> findExistingEmails(Collection<String> emails);
+
+    List<User> findAllBy(PageRequest pageRequest);
+
+    @Query(value = "select u from User u where u.id > ?1 order by u.id")
+    List<User> findAllAfter(long userId, PageRequest pageRequest);
+
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "" + STREAM_FETCH_SIZE),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(value = "select new ru.practicum.shareit.user.dto.UserDto(u.id, u.name, u.email) from User u order by u.id")
+    Stream<UserDto> streamAll();
 }
@@ -0,0 +1,9 @@
+package ru.practicum.shareit.user.repository;
+
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+
+public interface UserRepositoryCustom {
+    List<User> insertAll(List<User> users);
+}
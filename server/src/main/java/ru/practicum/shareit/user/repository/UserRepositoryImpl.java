@@ -0,0 +1,25 @@
+package ru.practicum.shareit.user.repository;
+
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.user.model.User;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import java.util.List;
+
+/**
+ * Вставка пачки новых пользователей одной транзакцией и пакетами JDBC, с очисткой контекста после неё.
+ */
+public class UserRepositoryImpl implements UserRepositoryCustom {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    @Transactional
+    public List<User> insertAll(List<User> users) {
+        users.forEach(entityManager::persist);
+        entityManager.flush();
+        entityManager.clear();
+        return users;
+    }
+}
@@ -1,16 +1,27 @@
 package ru.practicum.shareit.user.service;
 
+import ru.practicum.shareit.batch.BatchRowResult;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface UserService {
     List<UserDto> findAllUsers();
 
+    List<UserDto> findUsers(int from, int size);
+
+    List<UserDto> findUsersAfter(String after, int size);
+
+    void streamAllUsers(Consumer<UserDto> consumer);
+
     UserDto findUserById(long id);
 
     UserDto addUser(UserDto userDto);
 
+    void addUsers(Iterator<UserDto> users, Consumer<BatchRowResult> consumer);
+
     UserDto updateUser(long id, UserDto userDto);
 
     void deleteUser(long id);
@@ -1,25 +1,52 @@
 package ru.practicum.shareit.user.service;
 
 import lombok.AllArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.batch.BatchRowResult;
+import ru.practicum.shareit.booking.index.ItemBookingIndex;
+import ru.practicum.shareit.etag.ResourceEtags;
 import ru.practicum.shareit.exception.EmailAlreadyExistsException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.validation.Valid;
 
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static java.lang.String.format;
 
 @Service
 @AllArgsConstructor
 public class UserServiceImpl implements UserService {
+    private static final int BATCH_CHUNK_SIZE = 500;
+
     private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemBookingIndex itemBookingIndex;
     private final Valid valid;
+    private final ResourceEtags resourceEtags;
 
     @Override
     public List<UserDto> findAllUsers() {
@@ -27,6 +54,27 @@ public class UserServiceImpl implements UserService {
                 .collect(Collectors.toList());
     }
 
+    @Override
+    public List<UserDto> findUsers(int from, int size) {
+        return userRepository.findAllBy(PageRequest.of(from / size, size, Sort.by("id"))).stream()
+                .map(UserMapper::toUserDto).collect(Collectors.toList());
+    }
+
+    @Override
+    public List<UserDto> findUsersAfter(String after, int size) {
+        return userRepository.findAllAfter(PageCursor.decode(after).getId(), PageRequest.of(0, size)).stream()
+                .map(UserMapper::toUserDto).collect(Collectors.toList());
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public void streamAllUsers(Consumer<UserDto> consumer) {
+        // Строки читаются курсором порциями по STREAM_FETCH_SIZE и сразу отдаются потребителю.
+        try (Stream<UserDto> users = userRepository.streamAll()) {
+            users.forEach(consumer);
+        }
+    }
+
     @Override
     public UserDto findUserById(long id) {
         User user = userRepository.findById(id).orElseThrow(() ->
@@ -36,44 +84,173 @@ public class UserServiceImpl implements UserService {
 
     @Override
     public UserDto addUser(UserDto userDto) {
-        return UserMapper.toUserDto(userRepository.save(UserMapper.toUser(userDto)));
+        User user = UserMapper.toUser(userDto);
+        checkEmail(user.getEmail());
+        return UserMapper.toUserDto(saveUser(user));
+    }
+
+    /**
+     * Строки сохраняются окнами по BATCH_CHUNK_SIZE строк входа. Результаты окна отдаются потребителю в порядке строк
+     * сразу после его сохранения, поэтому в памяти не копятся ни строки, ни результаты всего импорта.
+     */
+    @Override
+    public void addUsers(Iterator<UserDto> users, Consumer<BatchRowResult> consumer) {
+        List<BatchRowResult> results = new ArrayList<>();
+        Map<Integer, User> chunk = new LinkedHashMap<>();
+        int row = 0;
+        while (true) {
+            UserDto userDto;
+            try {
+                if (!users.hasNext()) {
+                    break;
+                }
+                userDto = users.next();
+            } catch (UncheckedIOException e) {
+                // Синтаксическая ошибка или обрыв тела: прочитанное сохраняется, об остальном сообщает последняя строка.
+                flushChunk(chunk, results, consumer);
+                consumer.accept(BatchRowResult.aborted(row));
+                return;
+            }
+            String error = validationBeforeBatchAdd(userDto);
+            if (error != null) {
+                results.add(BatchRowResult.failed(row, HttpStatus.BAD_REQUEST, error));
+            } else {
+                User user = UserMapper.toUser(userDto);
+                user.setId(null);
+                chunk.put(row, user);
+            }
+            row++;
+            if (row % BATCH_CHUNK_SIZE == 0) {
+                flushChunk(chunk, results, consumer);
+            }
+        }
+        flushChunk(chunk, results, consumer);
     }
 
     @Override
     public UserDto updateUser(long id, UserDto userDto) {
-        User user = validationBeforeUpdate(id, userDto);
-        return UserMapper.toUserDto(userRepository.save(user));
+        try {
+            // Изменяется свежая сущность, а не общая из кэша Valid: до сброса её видят другие запросы.
+            User user = userRepository.findById(id).orElseThrow(() ->
+                    new NotFoundException(format("Пользователя с id = %s нет в базе", id)));
+            User savedUser = saveUser(validationBeforeUpdate(user, userDto));
+            // Пользователь входит в бронирования и комментарии, поэтому ETag сбрасываются все.
+            resourceEtags.evictAll();
+            return UserMapper.toUserDto(savedUser);
+        } finally {
+            valid.evictUser(id);
+        }
     }
 
     @Override
     public void deleteUser(long id) {
+        List<Long> ownedItemIds = itemRepository.findIdsByOwnerId(id);
         userRepository.deleteById(id);
+        valid.evictUser(id);
+        valid.evictItemsByOwner(id);
+        itemSearchIndex.removeByOwner(id);
+        itemBookingIndex.evictUser(id, ownedItemIds);
+        resourceEtags.evictAll();
     }
 
-    private User validationBeforeUpdate(long id, UserDto userDto) {
-        User user = valid.checkUser(id);
+    private void flushChunk(Map<Integer, User> chunk, List<BatchRowResult> results,
+                            Consumer<BatchRowResult> consumer) {
+        saveChunk(chunk, results);
+        results.sort(Comparator.comparingInt(BatchRowResult::getRow));
+        results.forEach(consumer);
+        chunk.clear();
+        results.clear();
+    }
+
+    /**
+     * Адреса пачки проверяются одним запросом по уникальному индексу, включая повторы внутри самой пачки.
+     * Пачки из предыдущих строк к этому моменту уже сохранены, поэтому повторы между пачками тоже найдутся.
+     */
+    private void saveChunk(Map<Integer, User> chunk, List<BatchRowResult> results) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        Set<String> takenEmails = new HashSet<>(userRepository.findExistingEmails(chunk.values().stream()
+                .map(User::getEmail).collect(Collectors.toSet())));
+        Map<Integer, User> rows = new LinkedHashMap<>();
+        chunk.forEach((row, user) -> {
+            if (takenEmails.add(user.getEmail())) {
+                rows.put(row, user);
+            } else {
+                results.add(emailConflict(row, user.getEmail()));
+            }
+        });
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            userRepository.insertAll(new ArrayList<>(rows.values()));
+        } catch (DataIntegrityViolationException e) {
+            // Адрес мог занять параллельный запрос: пачка откатилась, строки сохраняются по одной.
+            rows.forEach((row, user) -> results.add(saveRow(row, user)));
+            return;
+        }
+        rows.forEach((row, user) -> results.add(BatchRowResult.created(row, user.getId())));
+    }
+
+    private BatchRowResult saveRow(int row, User user) {
+        user.setId(null);
+        try {
+            return BatchRowResult.created(row, userRepository.save(user).getId());
+        } catch (DataIntegrityViolationException e) {
+            return emailConflict(row, user.getEmail());
+        }
+    }
+
+    private static BatchRowResult emailConflict(int row, String email) {
+        return BatchRowResult.failed(row, HttpStatus.CONFLICT,
+                format("Email %s уже есть в базе у другого пользователя", email));
+    }
+
+    private static String validationBeforeBatchAdd(UserDto userDto) {
+        if (userDto == null) {
+            return "Строку не удалось разобрать как пользователя.";
+        } else if (userDto.getEmail() == null || userDto.getEmail().isBlank()) {
+            return "Email не должен быть пустым";
+        } else if (!userDto.getEmail().contains("@")) {
+            return "Некорректный email";
+        } else if (userDto.getName() == null || userDto.getName().isBlank()) {
+            return "Имя пользователя не должно быть пустым";
+        }
+        return null;
+    }
+
+    private User validationBeforeUpdate(User user, UserDto userDto) {
         if (userDto.getName() != null) {
             user.setName(userDto.getName());
         }
         if (userDto.getEmail() != null) {
-            if (!user.getEmail().equals(userDto.getEmail()) && isEmailPresentInRepository(UserMapper
-                    .toUser(userDto))) {
-                throw new EmailAlreadyExistsException(String.format("Email %s уже есть в базе у другого пользователя",
-                        userDto.getEmail()));
+            if (!user.getEmail().equals(userDto.getEmail())) {
+                checkEmail(userDto.getEmail());
             }
             user.setEmail(userDto.getEmail());
         }
         return user;
     }
 
-    private boolean isEmailPresentInRepository(User user) {
-        boolean isPresent = false;
-        for (User otherUser : userRepository.findAll()) {
-            if (otherUser.getEmail().equals(user.getEmail())) {
-                isPresent = true;
-                break;
-            }
+    /**
+     * Один запрос по уникальному индексу UQ_USER_EMAIL; он же защищает от гонки при сохранении.
+     * Отдельного индекса адресов в памяти нет: он не видит откаченных транзакций и других экземпляров сервера,
+     * поэтому каждое его срабатывание всё равно пришлось бы подтверждать в базе.
+     */
+    private void checkEmail(String email) {
+        if (userRepository.existsByEmail(email)) {
+            throw new EmailAlreadyExistsException(format("Email %s уже есть в базе у другого пользователя", email));
+        }
+    }
+
+    private User saveUser(User user) {
+        try {
+            return userRepository.save(user);
+        } catch (DataIntegrityViolationException e) {
+            // Адрес мог занять параллельный запрос или другой экземпляр сервера.
+            checkEmail(user.getEmail());
+            throw e;
         }
-        return isPresent;
     }
 }
@@ -1,6 +1,10 @@
 package ru.practicum.shareit.validation;
 
-import lombok.AllArgsConstructor;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.item.model.Item;
@@ -8,22 +12,65 @@ import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.Duration;
+import java.util.Objects;
+
 import static java.lang.String.format;
 
+/**
+ * Проверка существования пользователей и вещей. Найденные сущности кэшируются в памяти процесса
+ * с ограничением по размеру и времени жизни; изменяющие их сервисы сбрасывают записи явно.
+ * Возвращаемые сущности общие для всех запросов и только для чтения: для изменения загружается своя копия.
+ */
 @Component
-@AllArgsConstructor
 public class Valid {
     private final UserRepository userRepository;
     private final ItemRepository itemRepository;
+    private final Cache<Long, User> users;
+    private final Cache<Long, Item> items;
+
+    public Valid(UserRepository userRepository, ItemRepository itemRepository, MeterRegistry meterRegistry,
+                 @Value("${shareit.cache.maximum-size:10000}") long maximumSize,
+                 @Value("${shareit.cache.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.userRepository = userRepository;
+        this.itemRepository = itemRepository;
+        this.users = CaffeineCacheMetrics.monitor(meterRegistry, newCache(maximumSize, expireAfterWrite), "users");
+        this.items = CaffeineCacheMetrics.monitor(meterRegistry, newCache(maximumSize, expireAfterWrite), "items");
+    }
 
     public User checkUser(long userId) {
-        return userRepository.findById(userId).orElseThrow(() ->
-                new NotFoundException(format("Пользователя с id = %s нет в базе", userId)));
+        User user = users.get(userId, id -> userRepository.findById(id).orElse(null));
+        if (user == null) {
+            throw new NotFoundException(format("Пользователя с id = %s нет в базе", userId));
+        }
+        return user;
     }
 
     public Item checkItem(long itemId) {
-        return itemRepository.findById(itemId).orElseThrow(() ->
-                new NotFoundException(format("Вещи с id = %s нет в базе", itemId)));
+        Item item = items.get(itemId, id -> itemRepository.findWithOwnerById(id).orElse(null));
+        if (item == null) {
+            throw new NotFoundException(format("Вещи с id = %s нет в базе", itemId));
+        }
+        return item;
+    }
+
+    public void evictUser(long userId) {
+        users.invalidate(userId);
     }
 
+    public void evictItem(long itemId) {
+        items.invalidate(itemId);
+    }
+
+    public void evictItemsByOwner(long ownerId) {
+        items.asMap().values().removeIf(item -> Objects.equals(item.getOwner().getId(), ownerId));
+    }
+
+    private static <V> Cache<Long, V> newCache(long maximumSize, Duration expireAfterWrite) {
+        return Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .recordStats()
+                .build();
+    }
 }
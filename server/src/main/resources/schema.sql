@@ -1,14 +1,25 @@
 DROP TABLE IF EXISTS users, items, bookings, requests, comments;
+DROP SEQUENCE IF EXISTS users_seq;
+DROP SEQUENCE IF EXISTS requests_seq;
+DROP SEQUENCE IF EXISTS items_seq;
+DROP SEQUENCE IF EXISTS bookings_seq;
+DROP SEQUENCE IF EXISTS comments_seq;
+
+CREATE SEQUENCE IF NOT EXISTS users_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS items_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
 
 CREATE TABLE IF NOT EXISTS users (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     name VARCHAR(256) NOT NULL,
     email VARCHAR(512) NOT NULL,
     CONSTRAINT UQ_USER_EMAIL UNIQUE (email)
     );
 
 CREATE TABLE IF NOT EXISTS requests (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     description VARCHAR(256) NOT NULL,
     requester_id BIGINT NOT NULL,
     created TIMESTAMP WITHOUT TIME ZONE NOT NULL,
@@ -16,7 +27,7 @@ CREATE TABLE IF NOT EXISTS requests (
     );
 
 CREATE TABLE IF NOT EXISTS items (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     name VARCHAR(256) NOT NULL,
     description VARCHAR(1024) NOT NULL,
     available BOOLEAN NOT NULL,
@@ -27,7 +38,7 @@ CREATE TABLE IF NOT EXISTS items (
     );
 
 CREATE TABLE IF NOT EXISTS bookings (
-    id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     start_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     end_date TIMESTAMP WITHOUT TIME ZONE NOT NULL,
     item_id BIGINT REFERENCES items (id) ON DELETE CASCADE,
@@ -36,9 +47,25 @@ CREATE TABLE IF NOT EXISTS bookings (
 );
 
 CREATE TABLE IF NOT EXISTS comments (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    id BIGINT PRIMARY KEY,
     text VARCHAR(1024),
     author_id BIGINT REFERENCES users (id) ON DELETE CASCADE,
     item_id BIGINT REFERENCES items (id) ON DELETE CASCADE,
     created TIMESTAMP WITHOUT TIME ZONE NOT NULL
-);
\ No newline at end of file
+);
+
+CREATE INDEX IF NOT EXISTS idx_requests_requester_created ON requests (requester_id, created);
+CREATE INDEX IF NOT EXISTS idx_requests_created ON requests (created DESC, id DESC);
+
+CREATE INDEX IF NOT EXISTS idx_items_owner ON items (owner_id, id);
+CREATE INDEX IF NOT EXISTS idx_items_request ON items (request_id);
+
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_start ON bookings (booker_id, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_end ON bookings (booker_id, end_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_booker_status_start ON bookings (booker_id, status, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_start ON bookings (item_id, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_end ON bookings (item_id, end_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_status_start ON bookings (item_id, status, start_date);
+CREATE INDEX IF NOT EXISTS idx_bookings_item_booker_end ON bookings (item_id, booker_id, end_date);
+
+CREATE INDEX IF NOT EXISTS idx_comments_item ON comments (item_id);
@@ -0,0 +1,156 @@
+package ru.practicum.shareit;
+
+import org.hibernate.Session;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.status.BookingRole;
+import ru.practicum.shareit.booking.status.BookingState;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.PageCursor;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Проверяет по EXPLAIN в H2, что запросы репозиториев не сводятся к полному сканированию таблиц.
+ */
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.shareit.QueryPlanTest$SqlCapture")
+public class QueryPlanTest {
+    @Autowired
+    private TestEntityManager manager;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private ItemRequestRepository itemRequestRepository;
+    @Autowired
+    private UserRepository userRepository;
+
+    private final User owner = new User(null, "John", "john.doe@mail.com");
+    private final Item item = new Item(null, "Мопед", "Железный конь", true, owner, null);
+    private final PageRequest pageRequest = PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "start"));
+    private final LocalDateTime now = LocalDateTime.now();
+    private final long userId = 1L;
+    private final long itemId = 1L;
+
+    @BeforeEach
+    void setUp() {
+        manager.persist(owner);
+        manager.persist(item);
+        SqlCapture.STATEMENTS.clear();
+    }
+
+    @Test
+    void bookingQueriesUseIndexes() {
+        assertIndexed(() -> bookingRepository.findFirstByItemIdAndBookerIdAndEndIsBeforeAndStatus(itemId, userId,
+                now, Status.APPROVED));
+        assertIndexed(() -> bookingRepository.findIndexedBookings(List.of(itemId), Status.APPROVED));
+        assertIndexed(() -> bookingRepository.findIndexedBookingsInRange(itemId, Status.APPROVED, now,
+                now.plusDays(1)));
+        assertIndexed(() -> bookingRepository.findIdsByItemId(itemId));
+        PageCursor cursor = new PageCursor(now, 1L);
+        for (BookingState state : BookingState.values()) {
+            assertIndexed(() -> bookingRepository.findBookings(BookingRole.BOOKER, userId, state, now, null, 0, 10));
+            assertIndexed(() -> bookingRepository.findBookings(BookingRole.OWNER, userId, state, now, null, 0, 10));
+            assertIndexed(() -> bookingRepository.findBookings(BookingRole.BOOKER, userId, state, now, cursor, 0, 10));
+            assertIndexed(() -> bookingRepository.findBookings(BookingRole.OWNER, userId, state, now, cursor, 0, 10));
+        }
+    }
+
+    @Test
+    void itemQueriesUseIndexes() {
+        assertIndexed(() -> itemRepository.findAllByOwnerId(userId, PageRequest.of(0, 10)));
+        assertIndexed(() -> itemRepository.findAllByRequestIdIn(List.of(1L)));
+        assertIndexed(() -> itemRepository.findAllByRequestId(1L));
+        assertIndexed(() -> itemRepository.findIndexedItemsAfter(0L, PageRequest.of(0, 10)));
+        assertIndexed(() -> itemRepository.findAllByOwnerIdAfter(userId, 0L, PageRequest.of(0, 10)));
+        assertIndexed(() -> itemRepository.findWithOwnerById(itemId));
+        assertIndexed(() -> itemRepository.findIdsByOwnerId(userId));
+    }
+
+    @Test
+    void commentQueriesUseIndexes() {
+        assertIndexed(() -> commentRepository.findAllByItemId(itemId));
+        assertIndexed(() -> commentRepository.findAllByItemIn(List.of(item)));
+    }
+
+    @Test
+    void requestQueriesUseIndexes() {
+        assertIndexed(() -> itemRequestRepository.findAllByRequesterId(userId));
+        assertIndexed(() -> itemRequestRepository.findAllByRequesterIdNot(userId,
+                PageRequest.of(0, 10, Sort.by(Sort.Direction.DESC, "created"))));
+        assertIndexed(() -> itemRequestRepository.findAllByRequesterIdNotAfter(userId, now, 1L,
+                PageRequest.of(0, 10)));
+        assertIndexed(() -> itemRequestRepository.findExistingIds(List.of(1L, 2L)));
+    }
+
+    @Test
+    void userQueriesUseIndexes() {
+        assertIndexed(() -> userRepository.existsByEmail(owner.getEmail()));
+        assertIndexed(() -> userRepository.findExistingEmails(List.of(owner.getEmail(), "other@mail.com")));
+        assertIndexed(() -> userRepository.findAllAfter(userId, PageRequest.of(0, 10)));
+        assertIndexed(() -> userRepository.findAllBy(PageRequest.of(1, 10, Sort.by("id"))));
+    }
+
+    private void assertIndexed(Runnable query) {
+        SqlCapture.STATEMENTS.clear();
+        query.run();
+        List<String> statements = new ArrayList<>(SqlCapture.STATEMENTS);
+        assertFalse(statements.isEmpty(), "Запрос не обратился к базе");
+        for (String sql : statements) {
+            String plan = explain(sql);
+            assertFalse(plan.contains("tableScan"), "Полное сканирование таблицы:\n" + plan);
+        }
+    }
+
+    private String explain(String sql) {
+        return manager.getEntityManager().unwrap(Session.class).doReturningWork(connection -> {
+            try (PreparedStatement statement = connection.prepareStatement("EXPLAIN " + sql)) {
+                int parameterCount = statement.getParameterMetaData().getParameterCount();
+                for (int i = 1; i <= parameterCount; i++) {
+                    statement.setNull(i, Types.NULL);
+                }
+                StringBuilder plan = new StringBuilder();
+                try (ResultSet resultSet = statement.executeQuery()) {
+                    while (resultSet.next()) {
+                        plan.append(resultSet.getString(1));
+                    }
+                }
+                return plan.toString();
+            }
+        });
+    }
+
+    public static class SqlCapture implements StatementInspector {
+        private static final List<String> STATEMENTS = new ArrayList<>();
+
+        @Override
+        public String inspect(String sql) {
+            STATEMENTS.add(sql);
+            return sql;
+        }
+    }
+}
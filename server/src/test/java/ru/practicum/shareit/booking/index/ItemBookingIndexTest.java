@@ -0,0 +1,141 @@
+package ru.practicum.shareit.booking.index;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.user.model.User;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemBookingIndexTest {
+    @Mock
+    BookingRepository bookingRepository;
+    ItemBookingIndex index;
+
+    private final LocalDateTime now = LocalDateTime.of(2023, 6, 1, 12, 0);
+    private final long itemId = 1L;
+    private final User booker = new User(2L, "Алексей", "alexey.timoshenko@mail.com");
+    private final Item item = new Item(itemId, "Мопед", "Железный конь", true, null, null);
+    private final IndexedBooking past = new IndexedBooking(1L, itemId, 2L, now.minusDays(3), now.minusDays(2));
+    private final IndexedBooking last = new IndexedBooking(2L, itemId, 2L, now.minusDays(1), now.minusHours(1));
+    private final IndexedBooking next = new IndexedBooking(3L, itemId, 2L, now.plusDays(1), now.plusDays(2));
+    private final IndexedBooking future = new IndexedBooking(4L, itemId, 2L, now.plusDays(3), now.plusDays(4));
+
+    @BeforeEach
+    void setUp() {
+        index = new ItemBookingIndex(bookingRepository, new SimpleMeterRegistry(), 2);
+    }
+
+    @Test
+    void findLastAndNext() {
+        when(bookingRepository.findIndexedBookings(List.of(itemId), Status.APPROVED))
+                .thenReturn(List.of(future, past, next, last));
+
+        assertEquals(last, index.findLast(itemId, now));
+        assertEquals(next, index.findNext(itemId, now));
+        assertEquals(future, index.findNext(itemId, now.plusDays(2)));
+        verify(bookingRepository, times(1)).findIndexedBookings(any(), any());
+    }
+
+    @Test
+    void findForSeveralItems() {
+        when(bookingRepository.findIndexedBookings(List.of(itemId, 5L), Status.APPROVED))
+                .thenReturn(List.of(last, next));
+
+        Map<Long, IndexedBooking> lastBookings = index.findLast(List.of(itemId, 5L), now);
+        Map<Long, IndexedBooking> nextBookings = index.findNext(List.of(itemId, 5L), now);
+
+        assertEquals(Map.of(itemId, last), lastBookings);
+        assertEquals(Map.of(itemId, next), nextBookings);
+        verify(bookingRepository, times(1)).findIndexedBookings(any(), any());
+    }
+
+    @Test
+    void updateAddsApprovedBooking() {
+        when(bookingRepository.findIndexedBookings(List.of(itemId), Status.APPROVED)).thenReturn(List.of(last));
+        assertNull(index.findNext(itemId, now));
+
+        index.update(new Booking(next.getId(), next.getStart(), next.getEnd(), item, booker, Status.APPROVED));
+
+        assertEquals(next.getId(), index.findNext(itemId, now).getId());
+        verify(bookingRepository, times(1)).findIndexedBookings(any(), any());
+    }
+
+    @Test
+    void updateWithRejectedBookingRemovesIt() {
+        when(bookingRepository.findIndexedBookings(List.of(itemId), Status.APPROVED))
+                .thenReturn(List.of(past, last));
+        assertEquals(last, index.findLast(itemId, now));
+
+        index.update(new Booking(last.getId(), last.getStart(), last.getEnd(), item, booker, Status.REJECTED));
+
+        assertEquals(past, index.findLast(itemId, now));
+        verify(bookingRepository, times(1)).findIndexedBookings(any(), any());
+    }
+
+    @Test
+    void findOverlap() {
+        when(bookingRepository.findIndexedBookings(List.of(itemId), Status.APPROVED))
+                .thenReturn(List.of(past, last, next, future));
+
+        assertEquals(next, index.findOverlap(itemId, now.plusHours(12), now.plusDays(1).plusHours(1), null));
+        assertEquals(next, index.findOverlap(itemId, now.plusDays(1).plusHours(1), now.plusDays(3), null));
+        assertEquals(future, index.findOverlap(itemId, now.plusDays(2), now.plusDays(5), null));
+        assertNull(index.findOverlap(itemId, now, now.plusDays(1), null));
+        assertNull(index.findOverlap(itemId, now.plusDays(2), now.plusDays(3), null));
+        assertNull(index.findOverlap(itemId, next.getStart(), next.getEnd(), next.getId()));
+    }
+
+    @Test
+    void findOverlapWithLongBookingBeforeShortOne() {
+        IndexedBooking longBooking = new IndexedBooking(5L, itemId, 2L, now.plusDays(1), now.plusDays(10));
+        IndexedBooking shortBooking = new IndexedBooking(6L, itemId, 2L, now.plusDays(2), now.plusDays(3));
+        when(bookingRepository.findIndexedBookings(List.of(itemId), Status.APPROVED))
+                .thenReturn(List.of(longBooking, shortBooking));
+
+        assertEquals(longBooking, index.findOverlap(itemId, now.plusDays(5), now.plusDays(6), null));
+        assertNull(index.findOverlap(itemId, now.plusDays(10), now.plusDays(11), null));
+    }
+
+    @Test
+    void findOverlapWithBookingBeforeLast() {
+        IndexedBooking longBooking = new IndexedBooking(5L, itemId, 2L, now.minusDays(5), now.plusDays(5));
+        when(bookingRepository.findIndexedBookings(List.of(itemId), Status.APPROVED))
+                .thenReturn(List.of(longBooking, last));
+        assertEquals(last, index.findLast(itemId, now));
+
+        assertEquals(longBooking, index.findOverlap(itemId, now.plusDays(1), now.plusDays(2), null));
+    }
+
+    @Test
+    void evictUserDropsOwnedAndBookedItems() {
+        IndexedBooking otherBooker = new IndexedBooking(7L, 5L, 3L, now.plusDays(1), now.plusDays(2));
+        when(bookingRepository.findIndexedBookings(List.of(itemId, 5L), Status.APPROVED))
+                .thenReturn(List.of(last, otherBooker));
+        index.findLast(List.of(itemId, 5L), now);
+
+        index.evictUser(booker.getId(), List.of());
+        index.findNext(5L, now);
+        verify(bookingRepository, never()).findIndexedBookings(List.of(5L), Status.APPROVED);
+
+        index.evictUser(9L, List.of(5L));
+        index.findNext(5L, now);
+        verify(bookingRepository, times(1)).findIndexedBookings(List.of(5L), Status.APPROVED);
+        index.findLast(itemId, now);
+        verify(bookingRepository, times(1)).findIndexedBookings(List.of(itemId), Status.APPROVED);
+    }
+}
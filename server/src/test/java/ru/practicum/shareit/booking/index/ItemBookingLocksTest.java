@@ -0,0 +1,43 @@
+package ru.practicum.shareit.booking.index;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ItemBookingLocksTest {
+    private final ItemBookingLocks locks = new ItemBookingLocks();
+    private int counter;
+
+    @Test
+    void sameItemSharesLock() {
+        assertSame(locks.lockFor(1L), locks.lockFor(1L));
+        assertNotSame(locks.lockFor(1L), locks.lockFor(2L));
+    }
+
+    @Test
+    void withLockSerializesSameItem() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(executor.submit(() -> {
+                    for (int j = 0; j < 1000; j++) {
+                        locks.withLock(1L, () -> counter++);
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdown();
+        }
+        assertEquals(8000, counter);
+    }
+}
@@ -5,18 +5,24 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
-import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.index.IndexedBooking;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.status.BookingRole;
+import ru.practicum.shareit.booking.status.BookingState;
 import ru.practicum.shareit.booking.status.Status;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
 
 @DataJpaTest
 public class BookingRepositoryTest {
@@ -33,7 +39,6 @@ public class BookingRepositoryTest {
             LocalDateTime.now().minusMinutes(60), item, booker, Status.APPROVED);
     private final int from = 0;
     private final int size = 10;
-    private final PageRequest pageRequest = PageRequest.of(from, size);
     private final Sort sort = Sort.by(Sort.Direction.DESC, "start");
 
     @BeforeEach
@@ -50,164 +55,143 @@ public class BookingRepositoryTest {
     }
 
     @Test
-    void findAllByBookerId() {
-        List<Booking> bookings = repository.findAllByBookerId(booker.getId(), pageRequest);
+    void findBookingsByBooker() {
+        List<BookingDto> bookings = repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.ALL,
+                LocalDateTime.now(), null, from, size);
 
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        assertFound(bookings);
     }
 
     @Test
-    void findAllByItemOwnerId() {
-        List<Booking> bookings = repository.findAllByItemOwnerId(owner.getId(), pageRequest);
+    void findBookingsByOwner() {
+        List<BookingDto> bookings = repository.findBookings(BookingRole.OWNER, owner.getId(), BookingState.ALL,
+                LocalDateTime.now(), null, from, size);
 
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        assertFound(bookings);
+        assertEquals(0, repository.findBookings(BookingRole.OWNER, booker.getId(), BookingState.ALL,
+                LocalDateTime.now(), null, from, size).size());
     }
 
     @Test
-    void findAllByBookerIdAndStartIsBeforeAndEndIsAfter() {
-        List<Booking> bookings = repository.findAllByBookerIdAndStartIsBeforeAndEndIsAfter(booker.getId(),
-                LocalDateTime.now().minusMinutes(60), LocalDateTime.now().minusMinutes(120), pageRequest);
+    void findBookingsCurrent() {
+        LocalDateTime now = booking.getStart().plusMinutes(30);
 
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        assertFound(repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.CURRENT, now, null,
+                from, size));
+        assertFound(repository.findBookings(BookingRole.OWNER, owner.getId(), BookingState.CURRENT, now, null,
+                from, size));
+        assertEquals(0, repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.CURRENT,
+                LocalDateTime.now(), null, from, size).size());
     }
 
     @Test
-    void findAllByItemOwnerIdAndStartIsBeforeAndEndIsAfter() {
-        List<Booking> bookings = repository.findAllByItemOwnerIdAndStartIsBeforeAndEndIsAfter(owner.getId(),
-                LocalDateTime.now().minusMinutes(60), LocalDateTime.now().minusMinutes(120), pageRequest);
-
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+    void findBookingsPast() {
+        assertFound(repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.PAST,
+                LocalDateTime.now(), null, from, size));
+        assertFound(repository.findBookings(BookingRole.OWNER, owner.getId(), BookingState.PAST,
+                LocalDateTime.now(), null, from, size));
     }
 
     @Test
-    void findAllByBookerIdAndEndIsBefore() {
-        List<Booking> bookings = repository.findAllByBookerIdAndEndIsBefore(booker.getId(),
-                LocalDateTime.now(), pageRequest);
+    void findBookingsFuture() {
+        LocalDateTime now = booking.getStart().minusMinutes(30);
 
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        assertFound(repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.FUTURE, now, null,
+                from, size));
+        assertFound(repository.findBookings(BookingRole.OWNER, owner.getId(), BookingState.FUTURE, now, null,
+                from, size));
+        assertEquals(0, repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.FUTURE,
+                LocalDateTime.now(), null, from, size).size());
     }
 
     @Test
-    void findAllByItemOwnerIdAndEndIsBefore() {
-        List<Booking> bookings = repository.findAllByItemOwnerIdAndEndIsBefore(owner.getId(),
-                LocalDateTime.now(), pageRequest);
-
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
-    }
+    void findBookingsByStatus() {
+        Booking waiting = manager.persist(new Booking(null, booking.getStart().plusDays(1),
+                booking.getEnd().plusDays(1), item, booker, Status.WAITING));
 
-    @Test
-    void findAllByBookerIdAndStartIsAfter() {
-        List<Booking> bookings = repository.findAllByBookerIdAndStartIsAfter(booker.getId(),
-                LocalDateTime.now().minusMinutes(180), pageRequest);
+        List<BookingDto> bookings = repository.findBookings(BookingRole.OWNER, owner.getId(), BookingState.WAITING,
+                LocalDateTime.now(), null, from, size);
 
-        assertNotNull(bookings);
         assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        assertEquals(waiting.getId(), bookings.get(0).getId());
+        assertEquals(Status.WAITING, bookings.get(0).getStatus());
+        assertEquals(0, repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.REJECTED,
+                LocalDateTime.now(), null, from, size).size());
     }
 
     @Test
-    void findAllByItemOwnerIdAndStartIsAfter() {
-        List<Booking> bookings = repository.findAllByItemOwnerIdAndStartIsAfter(owner.getId(),
-                LocalDateTime.now().minusMinutes(180), pageRequest);
+    void findBookingsWithOffset() {
+        Booking later = manager.persist(new Booking(null, booking.getStart().plusDays(1),
+                booking.getEnd().plusDays(1), item, booker, Status.APPROVED));
 
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        assertEquals(List.of(later.getId()), ids(repository.findBookings(BookingRole.BOOKER, booker.getId(),
+                BookingState.ALL, LocalDateTime.now(), null, 0, 1)));
+        assertEquals(List.of(booking.getId()), ids(repository.findBookings(BookingRole.BOOKER, booker.getId(),
+                BookingState.ALL, LocalDateTime.now(), null, 1, 1)));
     }
 
     @Test
-    void findAllByBookerIdAndStatus() {
-        List<Booking> bookings = repository.findAllByBookerIdAndStatus(booker.getId(), Status.APPROVED, pageRequest);
+    void findIndexedBookings() {
+        List<IndexedBooking> bookings = repository.findIndexedBookings(List.of(item.getId()), Status.APPROVED);
 
         assertNotNull(bookings);
         assertEquals(1, bookings.size());
         assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        assertEquals(bookings.get(0).getItemId(), item.getId());
+        assertEquals(bookings.get(0).getBookerId(), booker.getId());
+        assertEquals(0, repository.findIndexedBookings(List.of(item.getId()), Status.WAITING).size());
     }
 
     @Test
-    void findAllByItemOwnerIdAndStatus() {
-        List<Booking> bookings = repository.findAllByItemOwnerIdAndStatus(owner.getId(), Status.APPROVED, pageRequest);
-
-        assertNotNull(bookings);
-        assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+    void findBookingsAfter() {
+        Booking sameStart = manager.persist(new Booking(null, booking.getStart(), booking.getEnd(), item, booker,
+                Status.WAITING));
+        Booking earlier = manager.persist(new Booking(null, booking.getStart().minusDays(1),
+                booking.getEnd().minusDays(1), item, booker, Status.APPROVED));
+        manager.flush();
+        manager.clear();
+        LocalDateTime now = LocalDateTime.now();
+
+        List<BookingDto> first = repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.ALL, now,
+                null, 0, 2);
+        assertEquals(List.of(sameStart.getId(), booking.getId()), ids(first));
+
+        PageCursor cursor = new PageCursor(first.get(1).getStart(), first.get(1).getId());
+        assertEquals(List.of(earlier.getId()), ids(repository.findBookings(BookingRole.BOOKER, booker.getId(),
+                BookingState.ALL, now, cursor, 0, 2)));
+        assertEquals(List.of(earlier.getId()), ids(repository.findBookings(BookingRole.OWNER, owner.getId(),
+                BookingState.PAST, now, cursor, 0, 2)));
+        assertEquals(0, repository.findBookings(BookingRole.BOOKER, booker.getId(), BookingState.WAITING, now,
+                cursor, 0, 2).size());
     }
 
     @Test
-    void findFirstByItemIdAndStartBeforeAndStatus() {
-        Booking actualBooking = repository.findFirstByItemIdAndStartBeforeAndStatus(item.getId(), LocalDateTime.now(),
-                Status.APPROVED, sort);
-
-        assertNotNull(actualBooking);
-        assertEquals(actualBooking.getId(), booking.getId());
-        assertEquals(actualBooking.getBooker(), booking.getBooker());
-        assertEquals(actualBooking.getItem(), booking.getItem());
-    }
+    void findIndexedBookingsInRange() {
+        LocalDateTime from = booking.getEnd().minusMinutes(1);
 
-    @Test
-    void findFirstByItemIdAndStartAfterAndStatus() {
-        Booking actualBooking = repository.findFirstByItemIdAndStartAfterAndStatus(item.getId(),
-                LocalDateTime.now().minusMinutes(180), Status.APPROVED, sort);
-
-        assertNotNull(actualBooking);
-        assertEquals(actualBooking.getId(), booking.getId());
-        assertEquals(actualBooking.getBooker(), booking.getBooker());
-        assertEquals(actualBooking.getItem(), booking.getItem());
-    }
+        List<IndexedBooking> bookings = repository.findIndexedBookingsInRange(item.getId(), Status.APPROVED, from,
+                from.plusDays(1));
 
-    @Test
-    void findFirstByItemIdAndBookerIdAndEndIsBeforeAndStatus() {
-        Booking actualBooking = repository.findFirstByItemIdAndBookerIdAndEndIsBeforeAndStatus(item.getId(),
-                booker.getId(), LocalDateTime.now(), Status.APPROVED);
-
-        assertNotNull(actualBooking);
-        assertEquals(actualBooking.getId(), booking.getId());
-        assertEquals(actualBooking.getBooker(), booking.getBooker());
-        assertEquals(actualBooking.getItem(), booking.getItem());
+        assertEquals(1, bookings.size());
+        assertEquals(booking.getId(), bookings.get(0).getId());
+        assertEquals(0, repository.findIndexedBookingsInRange(item.getId(), Status.APPROVED,
+                booking.getEnd().plusSeconds(1), booking.getEnd().plusDays(1)).size());
     }
 
-    @Test
-    void findAllByItemIn() {
-        List<Item> items = List.of(item);
-        List<Booking> bookings = repository.findAllByItemIn(items);
-
+    private void assertFound(List<BookingDto> bookings) {
         assertNotNull(bookings);
         assertEquals(1, bookings.size());
-        assertEquals(bookings.get(0).getId(), booking.getId());
-        assertEquals(bookings.get(0).getBooker(), booking.getBooker());
-        assertEquals(bookings.get(0).getItem(), booking.getItem());
+        BookingDto actual = bookings.get(0);
+        assertEquals(booking.getId(), actual.getId());
+        assertEquals(Status.APPROVED, actual.getStatus());
+        assertEquals(booker.getId(), actual.getBooker().getId());
+        assertEquals(booker.getName(), actual.getBooker().getName());
+        assertEquals(item.getId(), actual.getItem().getId());
+        assertEquals(item.getName(), actual.getItem().getName());
+        assertNull(actual.getItem().getRequestId());
     }
 
+    private static List<Long> ids(List<BookingDto> bookings) {
+        return bookings.stream().map(BookingDto::getId).collect(Collectors.toList());
+    }
 }
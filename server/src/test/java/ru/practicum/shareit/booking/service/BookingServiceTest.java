@@ -4,27 +4,40 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingDtoForOwner;
 import ru.practicum.shareit.booking.dto.BookingDtoFrontend;
+import ru.practicum.shareit.booking.dto.FreeSlotDto;
+import ru.practicum.shareit.booking.index.IndexedBooking;
+import ru.practicum.shareit.booking.index.ItemBookingIndex;
+import ru.practicum.shareit.booking.index.ItemBookingLocks;
+import ru.practicum.shareit.booking.mapper.BookingMapper;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.status.BookingRole;
+import ru.practicum.shareit.booking.status.BookingState;
 import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.etag.ResourceEtags;
 import ru.practicum.shareit.exception.IllegalStatusException;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.validation.Valid;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -32,7 +45,13 @@ public class BookingServiceTest {
     @Mock
     BookingRepository bookingRepository;
     @Mock
+    ItemBookingIndex itemBookingIndex;
+    @Spy
+    ItemBookingLocks itemBookingLocks = new ItemBookingLocks();
+    @Mock
     Valid valid;
+    @Mock
+    ResourceEtags resourceEtags;
     @InjectMocks
     BookingServiceImpl bookingService;
 
@@ -76,7 +95,8 @@ public class BookingServiceTest {
     @Test
     void findAllBookingsByUserIdWithStateAll() {
         String state = "ALL";
-        when(bookingRepository.findAllByBookerId(anyLong(), any())).thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.BOOKER), eq(ownerId), eq(BookingState.ALL), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByUserId(ownerId, state, from, size);
@@ -86,14 +106,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByBookerId(anyLong(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.BOOKER), eq(ownerId),
+                eq(BookingState.ALL), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByUserIdWithStateCurrent() {
         String state = "CURRENT";
-        when(bookingRepository.findAllByBookerIdAndStartIsBeforeAndEndIsAfter(anyLong(), any(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.BOOKER), eq(ownerId), eq(BookingState.CURRENT), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByUserId(ownerId, state, from, size);
@@ -103,15 +124,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByBookerIdAndStartIsBeforeAndEndIsAfter(
-                anyLong(), any(), any(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.BOOKER), eq(ownerId),
+                eq(BookingState.CURRENT), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByUserIdWithStatePast() {
         String state = "PAST";
-        when(bookingRepository.findAllByBookerIdAndEndIsBefore(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.BOOKER), eq(ownerId), eq(BookingState.PAST), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByUserId(ownerId, state, from, size);
@@ -121,15 +142,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByBookerIdAndEndIsBefore(anyLong(), any(),
-                any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.BOOKER), eq(ownerId),
+                eq(BookingState.PAST), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByUserIdWithStateFuture() {
         String state = "FUTURE";
-        when(bookingRepository.findAllByBookerIdAndStartIsAfter(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.BOOKER), eq(ownerId), eq(BookingState.FUTURE), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByUserId(ownerId, state, from, size);
@@ -139,15 +160,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByBookerIdAndStartIsAfter(anyLong(), any(),
-                any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.BOOKER), eq(ownerId),
+                eq(BookingState.FUTURE), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByUserIdWithStateWaiting() {
         String state = "WAITING";
-        when(bookingRepository.findAllByBookerIdAndStatus(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.BOOKER), eq(ownerId), eq(BookingState.WAITING), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByUserId(ownerId, state, from, size);
@@ -157,14 +178,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByBookerIdAndStatus(anyLong(), any(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.BOOKER), eq(ownerId),
+                eq(BookingState.WAITING), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByUserIdWithStateRejected() {
         String state = "REJECTED";
-        when(bookingRepository.findAllByBookerIdAndStatus(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.BOOKER), eq(ownerId), eq(BookingState.REJECTED), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByUserId(ownerId, state, from, size);
@@ -174,7 +196,8 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByBookerIdAndStatus(anyLong(), any(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.BOOKER), eq(ownerId),
+                eq(BookingState.REJECTED), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
@@ -186,10 +209,41 @@ public class BookingServiceTest {
                 () -> bookingService.findAllBookingsByUserId(ownerId, state, from, size));
     }
 
+    @Test
+    void findAllBookingsByUserIdAfter() {
+        PageCursor cursor = new PageCursor(booking.getStart(), booking.getId());
+        when(bookingRepository.findBookings(eq(BookingRole.BOOKER), eq(ownerId), eq(BookingState.PAST), any(),
+                eq(cursor), eq(0), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
+        when(valid.checkUser(ownerId)).thenReturn(user);
+
+        List<BookingDto> bookingDto = bookingService.findAllBookingsByUserIdAfter(ownerId, "PAST",
+                cursor.encode(), size);
+
+        assertEquals(1, bookingDto.size());
+        assertEquals(bookingDto.get(0).getId(), booking.getId());
+    }
+
+    @Test
+    void findAllBookingsByUserIdAfterWithoutTime() {
+        when(valid.checkUser(ownerId)).thenReturn(user);
+
+        assertThrows(ValidationException.class, () -> bookingService.findAllBookingsByUserIdAfter(ownerId, "ALL",
+                PageCursor.of(1L).encode(), size));
+    }
+
+    @Test
+    void findAllBookingsByItemOwnerIdAfterWithOtherState() {
+        when(valid.checkUser(ownerId)).thenReturn(user);
+
+        assertThrows(IllegalStatusException.class, () -> bookingService.findAllBookingsByItemOwnerIdAfter(ownerId,
+                "OTHER", new PageCursor(booking.getStart(), 1L).encode(), size));
+    }
+
     @Test
     void findAllBookingsByItemOwnerId_StateAll() {
         String state = "ALL";
-        when(bookingRepository.findAllByItemOwnerId(anyLong(), any())).thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.OWNER), eq(ownerId), eq(BookingState.ALL), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByItemOwnerId(ownerId, state, from, size);
@@ -199,14 +253,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByItemOwnerId(anyLong(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.OWNER), eq(ownerId),
+                eq(BookingState.ALL), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByItemOwnerIdWithStateCurrent() {
         String state = "CURRENT";
-        when(bookingRepository.findAllByItemOwnerIdAndStartIsBeforeAndEndIsAfter(anyLong(), any(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.OWNER), eq(ownerId), eq(BookingState.CURRENT), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByItemOwnerId(ownerId, state, from, size);
@@ -216,15 +271,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByItemOwnerIdAndStartIsBeforeAndEndIsAfter(
-                anyLong(), any(), any(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.OWNER), eq(ownerId),
+                eq(BookingState.CURRENT), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByItemOwnerIdWithStatePast() {
         String state = "PAST";
-        when(bookingRepository.findAllByItemOwnerIdAndEndIsBefore(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.OWNER), eq(ownerId), eq(BookingState.PAST), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByItemOwnerId(ownerId, state, from, size);
@@ -234,15 +289,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByItemOwnerIdAndEndIsBefore(anyLong(), any(),
-                any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.OWNER), eq(ownerId),
+                eq(BookingState.PAST), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByItemOwnerIdWithStateFuture() {
         String state = "FUTURE";
-        when(bookingRepository.findAllByItemOwnerIdAndStartIsAfter(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.OWNER), eq(ownerId), eq(BookingState.FUTURE), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByItemOwnerId(ownerId, state, from, size);
@@ -252,15 +307,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByItemOwnerIdAndStartIsAfter(anyLong(), any(),
-                any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.OWNER), eq(ownerId),
+                eq(BookingState.FUTURE), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByItemOwnerIdWithStateWaiting() {
         String state = "WAITING";
-        when(bookingRepository.findAllByItemOwnerIdAndStatus(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.OWNER), eq(ownerId), eq(BookingState.WAITING), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByItemOwnerId(ownerId, state, from, size);
@@ -270,14 +325,15 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByItemOwnerIdAndStatus(anyLong(), any(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.OWNER), eq(ownerId),
+                eq(BookingState.WAITING), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
     void findAllBookingsByItemOwnerIdWithStateRejected() {
         String state = "REJECTED";
-        when(bookingRepository.findAllByItemOwnerIdAndStatus(anyLong(), any(), any()))
-                .thenReturn(List.of(booking));
+        when(bookingRepository.findBookings(eq(BookingRole.OWNER), eq(ownerId), eq(BookingState.REJECTED), any(),
+                isNull(), eq(from), eq(size))).thenReturn(List.of(BookingMapper.toBookingDto(booking)));
         when(valid.checkUser(ownerId)).thenReturn(user);
 
         List<BookingDto> bookingDto = bookingService.findAllBookingsByItemOwnerId(ownerId, state, from, size);
@@ -287,7 +343,8 @@ public class BookingServiceTest {
         assertEquals(bookingDto.get(0).getId(), booking.getId());
         assertEquals(bookingDto.get(0).getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.get(0).getItem().getId(), booking.getItem().getId());
-        verify(bookingRepository, times(1)).findAllByItemOwnerIdAndStatus(anyLong(), any(), any());
+        verify(bookingRepository, times(1)).findBookings(eq(BookingRole.OWNER), eq(ownerId),
+                eq(BookingState.REJECTED), any(), isNull(), eq(from), eq(size));
     }
 
     @Test
@@ -314,6 +371,19 @@ public class BookingServiceTest {
         verify(bookingRepository, times(1)).save(any());
     }
 
+    @Test
+    void addWithApprovedOverlap() {
+        long userId = 1L;
+        when(valid.checkUser(userId)).thenReturn(user);
+        when(valid.checkItem(itemId)).thenReturn(item);
+        when(itemBookingIndex.findOverlap(itemId, bookingDtoFrontend.getStart(), bookingDtoFrontend.getEnd(), null))
+                .thenReturn(new IndexedBooking(2L, itemId, 3L, bookingDtoFrontend.getStart(),
+                        bookingDtoFrontend.getEnd()));
+
+        assertThrows(ValidationException.class, () -> bookingService.add(userId, bookingDtoFrontend));
+        verify(bookingRepository, never()).save(any());
+    }
+
     @Test
     void addWithFalseAvailable() {
         item.setAvailable(false);
@@ -336,6 +406,31 @@ public class BookingServiceTest {
         assertEquals(bookingDto.getBooker().getId(), booking.getBooker().getId());
         assertEquals(bookingDto.getItem().getId(), booking.getItem().getId());
         verify(bookingRepository, times(1)).save(any());
+        verify(itemBookingIndex, times(1)).update(booking);
+    }
+
+    @Test
+    void updateWithApprovedOverlap() {
+        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
+        when(valid.checkUser(ownerId)).thenReturn(owner);
+        when(itemBookingIndex.findOverlap(itemId, booking.getStart(), booking.getEnd(), bookingId))
+                .thenReturn(new IndexedBooking(2L, itemId, 3L, booking.getStart(), booking.getEnd()));
+
+        assertThrows(ValidationException.class, () -> bookingService.update(ownerId, bookingId, true));
+        verify(bookingRepository, never()).save(any());
+        verify(itemBookingLocks, times(1)).withLock(eq(itemId), any());
+    }
+
+    @Test
+    void rejectSkipsOverlapCheck() {
+        when(bookingRepository.findById(bookingId)).thenReturn(Optional.of(booking));
+        when(bookingRepository.save(booking)).thenReturn(booking);
+        when(valid.checkUser(ownerId)).thenReturn(owner);
+
+        bookingService.update(ownerId, bookingId, false);
+
+        verify(itemBookingIndex, never()).findOverlap(anyLong(), any(), any(), any());
+        verify(itemBookingIndex, times(1)).update(booking);
     }
 
     @Test
@@ -360,30 +455,75 @@ public class BookingServiceTest {
 
     @Test
     void getLastBookingTest() {
-        when(bookingRepository.findFirstByItemIdAndStartBeforeAndStatus(anyLong(), any(), any(), any()))
-                .thenReturn(booking);
+        IndexedBooking indexedBooking = BookingMapper.toIndexedBooking(booking);
+        when(itemBookingIndex.findLast(anyLong(), any())).thenReturn(indexedBooking);
 
         BookingDtoForOwner bookingDto = bookingService.getLastBooking(itemId);
 
         assertNotNull(bookingDto);
         assertEquals(bookingDto.getId(), booking.getId());
         assertEquals(bookingDto.getBookerId(), booking.getBooker().getId());
-        verify(bookingRepository, times(1)).findFirstByItemIdAndStartBeforeAndStatus(anyLong(),
-                any(), any(), any());
+        verify(itemBookingIndex, times(1)).findLast(anyLong(), any());
     }
 
     @Test
     void getNextBookingTest() {
-        when(bookingRepository.findFirstByItemIdAndStartAfterAndStatus(anyLong(), any(), any(), any()))
-                .thenReturn(booking);
+        IndexedBooking indexedBooking = BookingMapper.toIndexedBooking(booking);
+        when(itemBookingIndex.findNext(anyLong(), any())).thenReturn(indexedBooking);
 
         BookingDtoForOwner bookingDto = bookingService.getNextBooking(itemId);
 
         assertNotNull(bookingDto);
         assertEquals(bookingDto.getId(), booking.getId());
         assertEquals(bookingDto.getBookerId(), booking.getBooker().getId());
-        verify(bookingRepository, times(1)).findFirstByItemIdAndStartAfterAndStatus(anyLong(),
-                any(), any(), any());
+        verify(itemBookingIndex, times(1)).findNext(anyLong(), any());
     }
 
+    @Test
+    void getLastAndNextBookingsTest() {
+        List<Long> itemIds = List.of(itemId);
+        IndexedBooking indexedBooking = BookingMapper.toIndexedBooking(booking);
+        when(itemBookingIndex.findLast(eq(itemIds), any())).thenReturn(Map.of(itemId, indexedBooking));
+        when(itemBookingIndex.findNext(eq(itemIds), any())).thenReturn(Map.of());
+
+        Map<Long, BookingDtoForOwner> lastBookings = bookingService.getLastBookings(itemIds);
+        Map<Long, BookingDtoForOwner> nextBookings = bookingService.getNextBookings(itemIds);
+
+        assertEquals(1, lastBookings.size());
+        assertEquals(lastBookings.get(itemId).getId(), booking.getId());
+        assertTrue(nextBookings.isEmpty());
+    }
+
+    @Test
+    void getFreeSlots() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(10);
+        when(bookingRepository.findIndexedBookingsInRange(itemId, Status.APPROVED, from, to)).thenReturn(List.of(
+                new IndexedBooking(1L, itemId, 2L, from.minusDays(1), from.plusDays(1)),
+                new IndexedBooking(2L, itemId, 2L, from.plusDays(2), from.plusDays(4)),
+                new IndexedBooking(3L, itemId, 2L, from.plusDays(3), from.plusDays(5)),
+                new IndexedBooking(4L, itemId, 2L, from.plusDays(5), from.plusDays(6))));
+
+        List<FreeSlotDto> slots = bookingService.getFreeSlots(itemId, from, to);
+
+        assertEquals(List.of(new FreeSlotDto(from.plusDays(1), from.plusDays(2)),
+                new FreeSlotDto(from.plusDays(6), to)), slots);
+    }
+
+    @Test
+    void getFreeSlotsWithoutBookings() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        when(bookingRepository.findIndexedBookingsInRange(itemId, Status.APPROVED, from, from.plusDays(1)))
+                .thenReturn(List.of());
+
+        assertEquals(List.of(new FreeSlotDto(from, from.plusDays(1))),
+                bookingService.getFreeSlots(itemId, from, from.plusDays(1)));
+    }
+
+    @Test
+    void getFreeSlotsWithWrongPeriod() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+
+        assertThrows(ValidationException.class, () -> bookingService.getFreeSlots(itemId, from, from));
+    }
 }
@@ -0,0 +1,104 @@
+package ru.practicum.shareit.config;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import ru.practicum.shareit.ShareItServer;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.service.UserService;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Сервер под нагрузкой: пул потоков Tomcat против профиля virtual-threads. Одна операция — пачка
+ * из concurrency одновременных запросов страницы пользователей, каждый из которых ходит в базу.
+ * Запуск: метод main из IDE после mvn test-compile; вариант virtual — только на Java 21.
+ * <p>
+ * По умолчанию база — H2 в памяти процесса: запрос к ней не ждёт сети, поэтому замер показывает
+ * накладные расходы на потоки, а не выигрыш на ожидании JDBC. Для замера с PostgreSQL адрес базы
+ * передаётся системными свойствами shareit.benchmark.datasource.url, .username и .password.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class VirtualThreadLoadBenchmark {
+    @Param({"platform", "virtual"})
+    private String threads;
+    @Param({"100", "1000"})
+    private int concurrency;
+
+    private ConfigurableApplicationContext context;
+    private ExecutorService clientExecutor;
+    private HttpClient client;
+    private HttpRequest request;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(VirtualThreadLoadBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        String datasourceUrl = System.getProperty("shareit.benchmark.datasource.url");
+        List<String> profiles = new ArrayList<>();
+        List<String> args = new ArrayList<>(List.of(
+                "--server.port=0",
+                "--logging.level.org.springframework.orm.jpa=WARN",
+                "--logging.level.org.springframework.transaction=WARN",
+                "--logging.level.org.springframework.transaction.interceptor=WARN",
+                "--logging.level.org.springframework.orm.jpa.JpaTransactionManager=WARN",
+                "--logging.level.org.hibernate.SQL=WARN"));
+        if (datasourceUrl != null) {
+            args.add("--spring.datasource.url=" + datasourceUrl);
+            args.add("--spring.datasource.username=" + System.getProperty("shareit.benchmark.datasource.username"));
+            args.add("--spring.datasource.password=" + System.getProperty("shareit.benchmark.datasource.password"));
+        } else {
+            profiles.add("test");
+        }
+        if (threads.equals("virtual")) {
+            profiles.add("virtual-threads");
+        }
+        args.add("--spring.profiles.active=" + String.join(",", profiles));
+        context = new SpringApplicationBuilder(ShareItServer.class).run(args.toArray(new String[0]));
+        String runId = Long.toString(System.nanoTime(), 36);
+        UserService userService = context.getBean(UserService.class);
+        for (int i = 0; i < 100; i++) {
+            userService.addUser(new UserDto(null, "Пользователь " + i, "user" + i + "-" + runId + "@mail.com"));
+        }
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/users?from=0&size=20")).build();
+        clientExecutor = Executors.newFixedThreadPool(8);
+        client = HttpClient.newBuilder().executor(clientExecutor).build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        clientExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public int usersPageBurst() {
+        CompletableFuture<?>[] responses = new CompletableFuture<?>[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            responses[i] = client.sendAsync(request, HttpResponse.BodyHandlers.discarding());
+        }
+        CompletableFuture.allOf(responses).join();
+        return responses.length;
+    }
+}
@@ -0,0 +1,137 @@
+package ru.practicum.shareit.etag;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.shareit.item.dto.ItemDto;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ResourceEtagsTest {
+    private final ItemDto itemDto = new ItemDto(1L, "Мопед", "Железный конь", true,
+            null, null, null, null);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<ItemDto> loader = () -> {
+        loads.incrementAndGet();
+        return itemDto;
+    };
+    private ResourceEtags resourceEtags;
+
+    @BeforeEach
+    void setUp() {
+        resourceEtags = new ResourceEtags(new ObjectMapper().registerModule(new JavaTimeModule()),
+                new SimpleMeterRegistry(), 100, Duration.ofMinutes(5));
+    }
+
+    @Test
+    void get_returnNotModifiedWithoutLoading() {
+        String etag = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, loader)
+                .getHeaders().getETag();
+
+        ResponseEntity<ItemDto> response = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, etag, loader);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertNull(response.getBody());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void get_returnBodyForOtherEtag() {
+        resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, loader);
+
+        ResponseEntity<ItemDto> response = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L,
+                "W/\"other\"", loader);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(itemDto, response.getBody());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_etagDoesNotDependOnWeakPrefix() {
+        String etag = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, loader)
+                .getHeaders().getETag();
+
+        ResponseEntity<ItemDto> response = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L,
+                "\"other\", " + etag.substring(2), loader);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, response.getStatusCode());
+    }
+
+    @Test
+    void get_loadAfterEvict() {
+        String etag = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, loader)
+                .getHeaders().getETag();
+
+        resourceEtags.evict(ResourceEtags.Resource.ITEM, 1L);
+        ResponseEntity<ItemDto> response = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, etag, loader);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(etag, response.getHeaders().getETag());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_loadAfterValidUntil() {
+        String etag = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, loader,
+                item -> LocalDateTime.now().minusSeconds(1)).getHeaders().getETag();
+
+        ResponseEntity<ItemDto> response = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, etag, loader);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_notStoreWhenEvictedDuringLoad() {
+        Supplier<ItemDto> evictingLoader = () -> {
+            resourceEtags.evictAll();
+            return loader.get();
+        };
+        String etag = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, evictingLoader)
+                .getHeaders().getETag();
+
+        ResponseEntity<ItemDto> response = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, etag, loader);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void get_separateEtagsPerUser() {
+        String etag = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, loader)
+                .getHeaders().getETag();
+
+        ResponseEntity<ItemDto> response = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 2L, etag, loader);
+
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void evict_keepOtherResources() {
+        String etag = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, null, loader)
+                .getHeaders().getETag();
+        resourceEtags.get(ResourceEtags.Resource.BOOKING, 2L, 1L, null, loader);
+        resourceEtags.get(ResourceEtags.Resource.BOOKING, 2L, 2L, null, loader);
+
+        resourceEtags.evict(ResourceEtags.Resource.BOOKING, List.of(1L, 2L));
+        ResponseEntity<ItemDto> item = resourceEtags.get(ResourceEtags.Resource.ITEM, 1L, 1L, etag, loader);
+        resourceEtags.get(ResourceEtags.Resource.BOOKING, 2L, 1L, etag, loader);
+        resourceEtags.get(ResourceEtags.Resource.BOOKING, 2L, 2L, etag, loader);
+
+        assertEquals(HttpStatus.NOT_MODIFIED, item.getStatusCode());
+        assertEquals(5, loads.get());
+    }
+}
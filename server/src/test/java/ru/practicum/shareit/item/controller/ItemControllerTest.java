@@ -1,30 +1,53 @@
 package ru.practicum.shareit.item.controller;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import lombok.SneakyThrows;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.batch.BatchRowResult;
+import ru.practicum.shareit.booking.dto.FreeSlotDto;
 import ru.practicum.shareit.comment.dto.CommentDto;
+import ru.practicum.shareit.etag.ResourceEtags;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.service.ItemService;
 import ru.practicum.shareit.user.model.User;
 
 import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(ItemController.class)
+@Import({ResourceEtags.class, SimpleMeterRegistry.class})
 public class ItemControllerTest {
 
     @Autowired
@@ -44,6 +67,25 @@ public class ItemControllerTest {
     private final int from = 0;
     private final int size = 10;
 
+    @Test
+    @SneakyThrows
+    void getAvailability() {
+        LocalDateTime from = LocalDateTime.of(2030, 1, 1, 0, 0);
+        LocalDateTime to = from.plusDays(2);
+        when(itemService.getAvailability(userId, itemId, from, to))
+                .thenReturn(List.of(new FreeSlotDto(from, from.plusDays(1))));
+
+        mvc.perform(get("/items/{itemId}/availability", itemId)
+                        .header("X-Sharer-User-Id", userId)
+                        .param("from", from.toString())
+                        .param("to", to.toString())
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andExpect(jsonPath("$[0].start", is("2030-01-01T00:00:00")))
+                .andExpect(jsonPath("$[0].end", is("2030-01-02T00:00:00")));
+    }
+
     @Test
     @SneakyThrows
     void getItemById() {
@@ -62,6 +104,29 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.description", is(itemDto.getDescription())));
     }
 
+    @Test
+    @SneakyThrows
+    void getItemById_notModified() {
+        when(itemService.getItemById(userId, itemId))
+                .thenReturn(itemDto);
+
+        String etag = mvc.perform(get("/items/{itemId}", itemId)
+                        .header("X-Sharer-User-Id", userId)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/items/{itemId}", itemId)
+                        .header("X-Sharer-User-Id", userId)
+                        .header(HttpHeaders.IF_NONE_MATCH, etag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+        verify(itemService, times(1)).getItemById(userId, itemId);
+    }
+
     @Test
     @SneakyThrows
     void getItemsByUserId() {
@@ -124,6 +189,68 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.description", is(itemDto.getDescription())));
     }
 
+    @Test
+    @SneakyThrows
+    void addItems() {
+        List<ItemDto> received = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<ItemDto> items = invocation.getArgument(1);
+            items.forEachRemaining(received::add);
+            Consumer<BatchRowResult> consumer = invocation.getArgument(2);
+            consumer.accept(BatchRowResult.created(0, itemId));
+            consumer.accept(BatchRowResult.failed(1, HttpStatus.BAD_REQUEST, "Строку не удалось разобрать как вещь."));
+            return null;
+        }).when(itemService).addItems(eq(userId), any(), any());
+        String body = "[" + mapper.writeValueAsString(itemDto) + ", 5]";
+
+        MvcResult result = mvc.perform(post("/items/batch")
+                        .header("X-Sharer-User-Id", userId)
+                        .content(body)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(BatchRowResult.created(0, itemId), mapper.readValue(lines[0], BatchRowResult.class));
+        assertEquals(Arrays.asList(itemDto, null), received);
+    }
+
+    @Test
+    @SneakyThrows
+    void addItemsStream() {
+        List<ItemDto> received = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<ItemDto> items = invocation.getArgument(1);
+            items.forEachRemaining(received::add);
+            Consumer<BatchRowResult> consumer = invocation.getArgument(2);
+            consumer.accept(BatchRowResult.created(0, itemId));
+            consumer.accept(BatchRowResult.failed(1, HttpStatus.BAD_REQUEST, "Строку не удалось разобрать как вещь."));
+            return null;
+        }).when(itemService).addItems(eq(userId), any(), any());
+        String body = mapper.writeValueAsString(itemDto) + "\n\n{broken\n";
+
+        MvcResult result = mvc.perform(post("/items/batch")
+                        .header("X-Sharer-User-Id", userId)
+                        .content(body)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(400, mapper.readValue(lines[1], BatchRowResult.class).getStatus());
+        assertEquals(Arrays.asList(itemDto, null), received);
+    }
+
     @Test
     @SneakyThrows
     void updateItem() {
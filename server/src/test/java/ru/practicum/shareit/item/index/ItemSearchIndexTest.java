@@ -0,0 +1,76 @@
+package ru.practicum.shareit.item.index;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+public class ItemSearchIndexTest {
+    @Mock
+    ItemRepository itemRepository;
+    @InjectMocks
+    ItemSearchIndex index;
+
+    private final IndexedItem moped = new IndexedItem(1L, 1L, null, "Мопед", "Железный конь", true);
+    private final IndexedItem drill = new IndexedItem(2L, 2L, null, "Дрель", "Аккумуляторная дрель", true);
+    private final IndexedItem hammer = new IndexedItem(3L, 2L, 1L, "Киянка", "Деревянная киянка", false);
+
+    @BeforeEach
+    void setUp() {
+        when(itemRepository.findIndexedItemsAfter(anyLong(), any())).thenReturn(List.of(moped, drill, hammer));
+        index.warmUp();
+    }
+
+    @Test
+    void supports() {
+        assertTrue(index.supports("дре"));
+        assertFalse(index.supports("др"));
+    }
+
+    @Test
+    void searchByNameAndDescription() {
+        assertEquals(List.of(drill), index.search("дрель", 0, 10));
+        assertEquals(List.of(moped), index.search("езный к", 0, 10));
+        assertTrue(index.search("самокат", 0, 10).isEmpty());
+    }
+
+    @Test
+    void searchSkipsUnavailableItems() {
+        assertTrue(index.search("киянка", 0, 10).isEmpty());
+    }
+
+    @Test
+    void searchWithPaging() {
+        index.put(new IndexedItem(4L, 1L, null, "Дрель ударная", "Дрель", true));
+
+        assertEquals(List.of(drill), index.search("дрель", 0, 1));
+        assertEquals(4L, index.search("дрель", 1, 1).get(0).getId());
+    }
+
+    @Test
+    void putReplacesPreviousVersion() {
+        index.put(new IndexedItem(1L, 1L, null, "Скутер", "Двухколесный", true));
+
+        assertTrue(index.search("мопед", 0, 10).isEmpty());
+        assertEquals(1L, index.search("скутер", 0, 10).get(0).getId());
+    }
+
+    @Test
+    void removeByOwner() {
+        index.removeByOwner(2L);
+
+        assertTrue(index.search("дрель", 0, 10).isEmpty());
+        assertEquals(List.of(moped), index.search("мопед", 0, 10));
+    }
+}
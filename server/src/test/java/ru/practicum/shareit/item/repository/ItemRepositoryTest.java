@@ -6,6 +6,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
 import org.springframework.data.domain.PageRequest;
+import ru.practicum.shareit.item.index.IndexedItem;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
@@ -92,4 +93,16 @@ public class ItemRepositoryTest {
         assertEquals(items.get(0).getDescription(), item.getDescription());
     }
 
+    @Test
+    void findIndexedItemsAfter() {
+        List<IndexedItem> items = repository.findIndexedItemsAfter(0L, pageRequest);
+
+        assertNotNull(items);
+        assertEquals(1, items.size());
+        assertEquals(items.get(0).getId(), item.getId());
+        assertEquals(items.get(0).getOwnerId(), owner.getId());
+        assertEquals(items.get(0).getRequestId(), itemRequest.getId());
+        assertEquals(items.get(0).getName(), item.getName());
+    }
+
 }
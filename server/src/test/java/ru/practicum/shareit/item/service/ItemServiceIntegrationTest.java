@@ -6,6 +6,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.batch.BatchRowResult;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.status.Status;
 import ru.practicum.shareit.item.dto.ItemDto;
@@ -14,7 +15,9 @@ import ru.practicum.shareit.user.model.User;
 
 import javax.persistence.EntityManager;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -59,4 +62,19 @@ public class ItemServiceIntegrationTest {
         assertEquals(items.get(0).getName(), item.getName());
         assertEquals(items.get(0).getDescription(), item.getDescription());
     }
+
+    @Test
+    void addItems() {
+        List<ItemDto> items = List.of(
+                new ItemDto(null, "Дрель", "Аккумуляторная", true, null, null, null, null),
+                new ItemDto(null, "", "Без имени", true, null, null, null, null),
+                new ItemDto(null, "Пила", "Ножовка", false, null, null, null, null));
+
+        List<BatchRowResult> results = new ArrayList<>();
+        service.addItems(owner.getId(), items.iterator(), results::add);
+
+        assertEquals(List.of(201, 400, 201), results.stream().map(BatchRowResult::getStatus)
+                .collect(Collectors.toList()));
+        assertEquals(3, service.getItemsByUserId(owner.getId(), 0, 10).size());
+    }
 }
@@ -5,7 +5,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.batch.BatchRowResult;
 import ru.practicum.shareit.booking.dto.BookingDtoForOwner;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
@@ -15,19 +19,32 @@ import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.comment.mapper.CommentMapper;
 import ru.practicum.shareit.comment.model.Comment;
 import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.etag.ResourceEtags;
 import ru.practicum.shareit.exception.NotFoundException;
 import ru.practicum.shareit.exception.ValidationException;
 import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
 import ru.practicum.shareit.item.mapper.ItemMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.request.model.ItemRequest;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.validation.Valid;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -42,9 +59,15 @@ public class ItemServiceTest {
     @Mock
     CommentRepository commentRepository;
     @Mock
+    ItemRequestRepository itemRequestRepository;
+    @Mock
     BookingService bookingService;
     @Mock
+    ItemSearchIndex itemSearchIndex;
+    @Mock
     Valid valid;
+    @Mock
+    ResourceEtags resourceEtags;
     @InjectMocks
     ItemServiceImpl itemService;
 
@@ -80,8 +103,8 @@ public class ItemServiceTest {
     @Test
     void getItemsByUserId() {
         List<Item> items = List.of(item);
-        when(itemRepository.findAllByOwnerId(userId, pageRequest)).thenReturn(items);
-        when(bookingRepository.findAllByItemIn(items)).thenReturn(List.of(booking));
+        when(itemRepository.findAllByOwnerId(userId, PageRequest.of(from, size, Sort.by("id")))).thenReturn(items);
+        when(bookingService.getLastBookings(List.of(itemId))).thenReturn(Map.of(itemId, new BookingDtoForOwner()));
         when(commentRepository.findAllByItemIn(items)).thenReturn(List.of(comment));
         when(valid.checkUser(userId)).thenReturn(user);
 
@@ -93,10 +116,26 @@ public class ItemServiceTest {
         assertEquals(itemDto.get(0).getName(), item.getName());
         assertEquals(itemDto.get(0).getDescription(), item.getDescription());
         verify(itemRepository, times(1)).findAllByOwnerId(anyLong(), any());
-        verify(bookingRepository, times(1)).findAllByItemIn(anyList());
+        assertNotNull(itemDto.get(0).getLastBooking());
+        assertNull(itemDto.get(0).getNextBooking());
+        verify(bookingService, times(1)).getLastBookings(anyCollection());
+        verify(bookingService, times(1)).getNextBookings(anyCollection());
         verify(commentRepository, times(1)).findAllByItemIn(anyList());
     }
 
+    @Test
+    void getItemsByUserIdAfter() {
+        List<Item> items = List.of(item);
+        when(itemRepository.findAllByOwnerIdAfter(userId, 5L, PageRequest.of(0, size))).thenReturn(items);
+        when(valid.checkUser(userId)).thenReturn(user);
+
+        List<ItemDto> itemDto = itemService.getItemsByUserIdAfter(userId, PageCursor.of(5L).encode(), size);
+
+        assertEquals(1, itemDto.size());
+        assertEquals(itemDto.get(0).getId(), item.getId());
+        verify(itemRepository, never()).findAllByOwnerId(anyLong(), any());
+    }
+
     @Test
     void getItemsByText() {
         String text = "text";
@@ -112,6 +151,21 @@ public class ItemServiceTest {
         verify(itemRepository, times(1)).getItemsByText(anyString(), any());
     }
 
+    @Test
+    void getItemsByTextFromIndex() {
+        String text = "Мопед";
+        when(itemSearchIndex.supports(text.toLowerCase())).thenReturn(true);
+        when(itemSearchIndex.search(text.toLowerCase(), from, size))
+                .thenReturn(List.of(ItemMapper.toIndexedItem(item)));
+
+        List<ItemDto> itemDto = itemService.getItemsByText(text, from, size);
+
+        assertEquals(1, itemDto.size());
+        assertEquals(itemDto.get(0).getId(), item.getId());
+        assertEquals(itemDto.get(0).getName(), item.getName());
+        verify(itemRepository, never()).getItemsByText(anyString(), any());
+    }
+
     @Test
     void addItem() {
         when(itemRepository.save(any())).thenReturn(item);
@@ -124,6 +178,7 @@ public class ItemServiceTest {
         assertEquals(itemDto.getName(), item.getName());
         assertEquals(itemDto.getDescription(), item.getDescription());
         verify(itemRepository, times(1)).save(any());
+        verify(itemSearchIndex, times(1)).put(any());
     }
 
     @Test
@@ -142,6 +197,126 @@ public class ItemServiceTest {
                 () -> itemService.addItem(owner.getId(), ItemMapper.toItemDto(item)));
     }
 
+    @Test
+    void addItems() {
+        when(valid.checkUser(userId)).thenReturn(owner);
+        when(itemRequestRepository.findExistingIds(any())).thenReturn(List.of(5L));
+        when(itemRepository.insertAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        List<ItemDto> items = Arrays.asList(
+                new ItemDto(null, "Дрель", "Аккумуляторная", true, null, null, null, null),
+                new ItemDto(null, " ", "Без имени", true, null, null, null, null),
+                new ItemDto(null, "Пила", "Ножовка", true, 5L, null, null, null),
+                new ItemDto(null, "Молоток", "Слесарный", true, 6L, null, null, null),
+                null);
+
+        List<BatchRowResult> results = new ArrayList<>();
+        itemService.addItems(userId, items.iterator(), results::add);
+
+        assertEquals(List.of(0, 1, 2, 3, 4), results.stream().map(BatchRowResult::getRow)
+                .collect(Collectors.toList()));
+        assertEquals(List.of(201, 400, 201, 404, 400), results.stream().map(BatchRowResult::getStatus)
+                .collect(Collectors.toList()));
+        assertEquals(1L, results.get(0).getId());
+        assertEquals(2L, results.get(2).getId());
+        assertNotNull(results.get(3).getError());
+        verify(valid, times(1)).checkUser(userId);
+        verify(itemRepository, times(1)).insertAll(any());
+        verify(itemSearchIndex, times(2)).put(any());
+    }
+
+    @Test
+    void addItemsInChunks() {
+        when(valid.checkUser(userId)).thenReturn(owner);
+        when(itemRepository.insertAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        List<BatchRowResult> results = new ArrayList<>();
+        Iterator<ItemDto> items = IntStream.range(0, 1001)
+                .mapToObj(i -> {
+                    if (i == 500) {
+                        assertEquals(500, results.size());
+                    }
+                    return new ItemDto(null, "Вещь " + i, "Описание", true, null, null, null, null);
+                })
+                .iterator();
+
+        itemService.addItems(userId, items, results::add);
+
+        assertEquals(1001, results.size());
+        assertTrue(results.stream().allMatch(result -> result.getStatus() == 201));
+        verify(itemRepository, times(3)).insertAll(any());
+        verify(itemRequestRepository, never()).findExistingIds(any());
+    }
+
+    @Test
+    void addItemsWhenChunkFails() {
+        when(valid.checkUser(userId)).thenReturn(owner);
+        when(itemRepository.insertAll(any())).thenThrow(new DataIntegrityViolationException("constraint"));
+        when(itemRepository.save(any()))
+                .thenAnswer(invocation -> {
+                    Item saved = invocation.getArgument(0);
+                    saved.setId(7L);
+                    return saved;
+                })
+                .thenThrow(new DataIntegrityViolationException("value too long for column name"))
+                .thenThrow(new DataAccessResourceFailureException("connection lost"));
+        List<ItemDto> items = List.of(
+                new ItemDto(null, "Дрель", "Аккумуляторная", true, null, null, null, null),
+                new ItemDto(null, "Пила", "Ножовка", true, null, null, null, null),
+                new ItemDto(null, "Молоток", "Слесарный", true, null, null, null, null));
+
+        List<BatchRowResult> results = new ArrayList<>();
+        itemService.addItems(userId, items.iterator(), results::add);
+
+        assertEquals(List.of(201, 400, 500), results.stream().map(BatchRowResult::getStatus)
+                .collect(Collectors.toList()));
+        assertEquals(7L, results.get(0).getId());
+        assertNull(results.get(1).getId());
+        assertFalse(results.get(1).getError().contains("column"));
+        assertFalse(results.get(2).getError().contains("connection"));
+        verify(itemRepository, times(3)).save(any());
+        verify(itemSearchIndex, times(1)).put(any());
+    }
+
+    @Test
+    void addItemsWhenBodyBreaks() {
+        when(valid.checkUser(userId)).thenReturn(owner);
+        when(itemRepository.insertAll(any())).thenAnswer(invocation -> assignIds(invocation.getArgument(0)));
+        Iterator<ItemDto> items = List.of(
+                new ItemDto(null, "Дрель", "Аккумуляторная", true, null, null, null, null),
+                new ItemDto(null, "Пила", "Ножовка", true, null, null, null, null)).iterator();
+        Iterator<ItemDto> brokenItems = new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                if (!items.hasNext()) {
+                    throw new UncheckedIOException(new IOException("Unexpected end-of-input"));
+                }
+                return true;
+            }
+
+            @Override
+            public ItemDto next() {
+                return items.next();
+            }
+        };
+
+        List<BatchRowResult> results = new ArrayList<>();
+        itemService.addItems(userId, brokenItems, results::add);
+
+        assertEquals(List.of(201, 201, 400), results.stream().map(BatchRowResult::getStatus)
+                .collect(Collectors.toList()));
+        assertEquals(2, results.get(2).getRow());
+        verify(itemRepository, times(1)).insertAll(any());
+    }
+
+    @Test
+    void addItemsWithUnknownUser() {
+        when(valid.checkUser(userId)).thenThrow(new NotFoundException("Пользователя нет в базе"));
+
+        assertThrows(NotFoundException.class,
+                () -> itemService.addItems(userId, List.of(ItemMapper.toItemDto(item)).iterator(), result -> {
+                }));
+        verify(itemRepository, never()).insertAll(any());
+    }
+
     @Test
     void addItemWithNullAvailable() {
         item.setAvailable(null);
@@ -153,7 +328,8 @@ public class ItemServiceTest {
     @Test
     void updateItem() {
         when(itemRepository.save(any())).thenReturn(item);
-        when(valid.checkItem(itemId)).thenReturn(item);
+        when(bookingRepository.findIdsByItemId(itemId)).thenReturn(List.of(7L, 8L));
+        when(itemRepository.findWithOwnerById(itemId)).thenReturn(Optional.of(item));
         when(valid.checkUser(owner.getId())).thenReturn(owner);
 
         ItemDto itemDto = itemService.updateItem(owner.getId(), item.getId(), ItemMapper.toItemDto(item));
@@ -163,12 +339,15 @@ public class ItemServiceTest {
         assertEquals(itemDto.getName(), item.getName());
         assertEquals(itemDto.getDescription(), item.getDescription());
         verify(itemRepository, times(1)).save(any());
+        verify(valid, never()).checkItem(itemId);
+        verify(valid, times(1)).evictItem(itemId);
+        verify(resourceEtags).evict(ResourceEtags.Resource.BOOKING, List.of(7L, 8L));
     }
 
     @Test
     void updateItemWithEmptyName() {
         item.setName("");
-        when(valid.checkItem(itemId)).thenReturn(item);
+        when(itemRepository.findWithOwnerById(itemId)).thenReturn(Optional.of(item));
         when(valid.checkUser(owner.getId())).thenReturn(owner);
 
         assertThrows(NullPointerException.class,
@@ -178,7 +357,7 @@ public class ItemServiceTest {
     @Test
     void updateItemWithEmptyDescription() {
         item.setDescription("");
-        when(valid.checkItem(itemId)).thenReturn(item);
+        when(itemRepository.findWithOwnerById(itemId)).thenReturn(Optional.of(item));
         when(valid.checkUser(owner.getId())).thenReturn(owner);
 
         assertThrows(NullPointerException.class,
@@ -187,11 +366,12 @@ public class ItemServiceTest {
 
     @Test
     void updateItemWithNotValidOwner() {
-        when(valid.checkItem(itemId)).thenReturn(item);
+        when(itemRepository.findWithOwnerById(itemId)).thenReturn(Optional.of(item));
         when(valid.checkUser(userId)).thenReturn(user);
 
         assertThrows(NotFoundException.class,
                 () -> itemService.updateItem(userId, item.getId(), ItemMapper.toItemDto(item)));
+        verify(valid, times(1)).evictItem(itemId);
     }
 
     @Test
@@ -222,4 +402,11 @@ public class ItemServiceTest {
 
     }
 
+    private static List<Item> assignIds(List<Item> items) {
+        long id = 1;
+        for (Item item : items) {
+            item.setId(id++);
+        }
+        return items;
+    }
 }
@@ -0,0 +1,137 @@
+package ru.practicum.shareit.item.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import ru.practicum.shareit.booking.dto.BookingDtoForOwner;
+import ru.practicum.shareit.booking.index.IndexedBooking;
+import ru.practicum.shareit.booking.index.ItemBookingIndex;
+import ru.practicum.shareit.booking.index.ItemBookingLocks;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.booking.service.BookingServiceImpl;
+import ru.practicum.shareit.booking.status.Status;
+import ru.practicum.shareit.comment.mapper.CommentMapper;
+import ru.practicum.shareit.comment.model.Comment;
+import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.etag.ResourceEtags;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
+import ru.practicum.shareit.item.mapper.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.repository.ItemRequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.validation.Valid;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+/**
+ * Сборка списка вещей владельца в ItemServiceImpl.getItemsByUserId: группировка отзывов по id вещи против
+ * прежнего фильтра отзывов для каждой вещи. Оба варианта берут последнее и следующее бронирования
+ * из настоящих BookingServiceImpl и ItemBookingIndex; репозитории заменены заглушками с заранее
+ * сгенерированными данными, поэтому в замер не входит база. Запуск: метод main из IDE после mvn test-compile.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OwnerItemsAssemblyBenchmark {
+    @Param({"100", "1000"})
+    private int itemCount;
+    @Param({"10000"})
+    private int bookingCount;
+
+    private final User owner = new User(1L, "John", "john.doe@mail.com");
+    private final User booker = new User(2L, "Алексей", "alexey.timoshenko@mail.com");
+    private ItemRepository itemRepository;
+    private CommentRepository commentRepository;
+    private BookingService bookingService;
+    private ItemService itemService;
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder().include(OwnerItemsAssemblyBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime now = LocalDateTime.now();
+        List<Item> items = new ArrayList<>();
+        for (long id = 1; id <= itemCount; id++) {
+            items.add(new Item(id, "Вещь " + id, "Описание " + id, true, owner, null));
+        }
+        List<IndexedBooking> approvedBookings = new ArrayList<>();
+        List<Comment> comments = new ArrayList<>();
+        for (long id = 1; id <= bookingCount; id++) {
+            Item item = items.get(random.nextInt(itemCount));
+            LocalDateTime start = now.plusHours(random.nextInt(24 * 365) - 24 * 180);
+            if (random.nextInt(4) != 0) {
+                approvedBookings.add(new IndexedBooking(id, item.getId(), booker.getId(), start, start.plusHours(2)));
+            }
+            comments.add(new Comment(id, "Отзыв " + id, booker, item, now));
+        }
+
+        itemRepository = mock(ItemRepository.class, withSettings().stubOnly());
+        when(itemRepository.findAllByOwnerId(anyLong(), any())).thenReturn(items);
+        commentRepository = mock(CommentRepository.class, withSettings().stubOnly());
+        when(commentRepository.findAllByItemIn(any())).thenReturn(comments);
+        BookingRepository bookingRepository = mock(BookingRepository.class, withSettings().stubOnly());
+        when(bookingRepository.findIndexedBookings(any(), any())).thenReturn(approvedBookings);
+        Valid valid = mock(Valid.class, withSettings().stubOnly());
+        when(valid.checkUser(owner.getId())).thenReturn(owner);
+
+        ItemBookingIndex itemBookingIndex = new ItemBookingIndex(bookingRepository, new SimpleMeterRegistry(),
+                itemCount);
+        bookingService = new BookingServiceImpl(bookingRepository, itemBookingIndex, new ItemBookingLocks(), valid,
+                mock(ResourceEtags.class));
+        itemService = new ItemServiceImpl(itemRepository, bookingService, bookingRepository, commentRepository,
+                mock(ItemRequestRepository.class), mock(ItemSearchIndex.class), valid, mock(ResourceEtags.class));
+        // Шкалы бронирований загружаются один раз, дальше оба варианта читают их из индекса, как в работе сервера.
+        itemService.getItemsByUserId(owner.getId(), 0, itemCount);
+    }
+
+    @Benchmark
+    public List<ItemDto> nestedCommentFilters() {
+        List<Item> items = itemRepository.findAllByOwnerId(owner.getId(), null);
+        List<ItemDto> itemsDto = items.stream()
+                .sorted(Comparator.comparing(Item::getId))
+                .map(ItemMapper::toItemDtoForOwner).collect(Collectors.toList());
+        List<Long> itemIds = items.stream().map(Item::getId).collect(Collectors.toList());
+        Map<Long, BookingDtoForOwner> lastBookings = bookingService.getLastBookings(itemIds);
+        Map<Long, BookingDtoForOwner> nextBookings = bookingService.getNextBookings(itemIds);
+        List<Comment> comments = commentRepository.findAllByItemIn(items);
+        for (ItemDto item : itemsDto) {
+            item.setLastBooking(lastBookings.get(item.getId()));
+            item.setNextBooking(nextBookings.get(item.getId()));
+            item.setComments(comments.stream()
+                    .filter(comment -> Objects.equals(comment.getItem().getId(), item.getId()))
+                    .map(CommentMapper::toCommentDto)
+                    .collect(Collectors.toList()));
+        }
+        return itemsDto;
+    }
+
+    @Benchmark
+    public List<ItemDto> getItemsByUserId() {
+        return itemService.getItemsByUserId(owner.getId(), 0, itemCount);
+    }
+}
@@ -6,21 +6,32 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import ru.practicum.shareit.batch.BatchRowResult;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.is;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @WebMvcTest(UserController.class)
@@ -54,6 +65,44 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$[0].email", is(userDto.getEmail())));
     }
 
+    @Test
+    @SneakyThrows
+    void getUsersPage() {
+        when(userService.findUsers(0, 1))
+                .thenReturn(List.of(userDto));
+
+        mvc.perform(get("/users")
+                        .param("from", "0")
+                        .param("size", "1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(PageCursor.NEXT_CURSOR_HEADER, PageCursor.of(userDto.getId()).encode()))
+                .andExpect(jsonPath("$", hasSize(1)));
+    }
+
+    @Test
+    @SneakyThrows
+    void streamAllUsers() {
+        doAnswer(invocation -> {
+            Consumer<UserDto> consumer = invocation.getArgument(0);
+            consumer.accept(userDto);
+            consumer.accept(new UserDto(2L, "Алексей", "alexey.timoshenko@mail.com"));
+            return null;
+        }).when(userService).streamAllUsers(any());
+
+        MvcResult result = mvc.perform(get("/users/stream")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8);
+        String[] lines = body.split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(userDto, mapper.readValue(lines[0], UserDto.class));
+    }
+
     @Test
     @SneakyThrows
     void getUserDtoById() {
@@ -92,6 +141,66 @@ public class UserControllerTest {
                 .andExpect(jsonPath("$.email", is(userDto.getEmail())));
     }
 
+    @Test
+    @SneakyThrows
+    void addUsers() {
+        List<UserDto> received = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<UserDto> users = invocation.getArgument(0);
+            users.forEachRemaining(received::add);
+            Consumer<BatchRowResult> consumer = invocation.getArgument(1);
+            consumer.accept(BatchRowResult.created(0, userDto.getId()));
+            consumer.accept(BatchRowResult.failed(1, HttpStatus.BAD_REQUEST, "Строку не удалось разобрать"));
+            return null;
+        }).when(userService).addUsers(any(), any());
+        String body = "[" + mapper.writeValueAsString(userDto) + ", 5, " + mapper.writeValueAsString(userDto) + "]";
+
+        MvcResult result = mvc.perform(post("/users/batch")
+                        .content(body)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(BatchRowResult.created(0, userDto.getId()), mapper.readValue(lines[0], BatchRowResult.class));
+        assertEquals(Arrays.asList(userDto, null, userDto), received);
+    }
+
+    @Test
+    @SneakyThrows
+    void addUsersStream() {
+        List<UserDto> received = new ArrayList<>();
+        doAnswer(invocation -> {
+            Iterator<UserDto> users = invocation.getArgument(0);
+            users.forEachRemaining(received::add);
+            Consumer<BatchRowResult> consumer = invocation.getArgument(1);
+            consumer.accept(BatchRowResult.created(0, userDto.getId()));
+            consumer.accept(BatchRowResult.failed(1, HttpStatus.CONFLICT, "Email уже есть в базе"));
+            return null;
+        }).when(userService).addUsers(any(), any());
+        String body = mapper.writeValueAsString(userDto) + "\n" + mapper.writeValueAsString(userDto) + "\n";
+
+        MvcResult result = mvc.perform(post("/users/batch")
+                        .content(body)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_NDJSON)
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        String[] lines = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, lines.length);
+        assertEquals(409, mapper.readValue(lines[1], BatchRowResult.class).getStatus());
+        assertEquals(List.of(userDto, userDto), received);
+    }
+
     @Test
     @SneakyThrows
     void updateUserDto() {
@@ -0,0 +1,57 @@
+package ru.practicum.shareit.user.repository;
+
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import ru.practicum.shareit.user.model.User;
+
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+public class UserRepositoryTest {
+    @Autowired
+    private TestEntityManager manager;
+    @Autowired
+    private UserRepository repository;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = manager.getEntityManager().getEntityManagerFactory().unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void saveAllInsertsInBatches() {
+        List<User> users = IntStream.range(0, 20)
+                .mapToObj(i -> new User(null, "John" + i, "john" + i + "@mail.com"))
+                .collect(Collectors.toList());
+
+        repository.saveAll(users);
+        manager.flush();
+
+        assertTrue(users.stream().allMatch(user -> user.getId() != null));
+        assertEquals(20, statistics.getEntityInsertCount());
+        // Один запрос к последовательности и один пакетный INSERT на все 20 строк.
+        assertTrue(statistics.getPrepareStatementCount() <= 2);
+    }
+
+    @Test
+    void findExistingEmails() {
+        manager.persist(new User(null, "John", "john.doe@mail.com"));
+
+        assertEquals(List.of("john.doe@mail.com"),
+                repository.findExistingEmails(List.of("john.doe@mail.com", "other@mail.com")));
+    }
+}
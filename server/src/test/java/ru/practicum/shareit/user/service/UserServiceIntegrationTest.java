@@ -6,10 +6,14 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.batch.BatchRowResult;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
 import javax.persistence.EntityManager;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
@@ -39,4 +43,18 @@ public class UserServiceIntegrationTest {
         assertEquals(updatedUser.getName(), user.getName());
         assertEquals(updatedUser.getEmail(), user.getEmail());
     }
+
+    @Test
+    void addUsers() {
+        List<UserDto> users = List.of(userDto,
+                new UserDto(null, "John", user.getEmail()),
+                new UserDto(null, "Алексей", userDto.getEmail()));
+
+        List<BatchRowResult> results = new ArrayList<>();
+        service.addUsers(users.iterator(), results::add);
+
+        assertEquals(List.of(201, 409, 409), results.stream().map(BatchRowResult::getStatus)
+                .collect(Collectors.toList()));
+        assertEquals(userDto.getEmail(), service.findUserById(results.get(0).getId()).getEmail());
+    }
 }
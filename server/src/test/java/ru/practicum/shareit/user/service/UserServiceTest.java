@@ -1,19 +1,39 @@
 package ru.practicum.shareit.user.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.module.paramnames.ParameterNamesModule;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import ru.practicum.shareit.batch.BatchRowResult;
+import ru.practicum.shareit.batch.JsonArrayIterator;
+import ru.practicum.shareit.booking.index.ItemBookingIndex;
+import ru.practicum.shareit.etag.ResourceEtags;
+import ru.practicum.shareit.exception.EmailAlreadyExistsException;
 import ru.practicum.shareit.exception.NotFoundException;
+import ru.practicum.shareit.item.index.ItemSearchIndex;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.pagination.PageCursor;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.mapper.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.validation.Valid;
 
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,7 +44,15 @@ public class UserServiceTest {
     @Mock
     UserRepository userRepository;
     @Mock
+    ItemRepository itemRepository;
+    @Mock
+    ItemSearchIndex itemSearchIndex;
+    @Mock
+    ItemBookingIndex itemBookingIndex;
+    @Mock
     Valid valid;
+    @Mock
+    ResourceEtags resourceEtags;
     @InjectMocks
     UserServiceImpl userService;
 
@@ -68,6 +96,36 @@ public class UserServiceTest {
                 () -> userService.findUserById(userId));
     }
 
+    @Test
+    void findUsersTest() {
+        when(userRepository.findAllBy(PageRequest.of(1, 10, Sort.by("id")))).thenReturn(List.of(user));
+
+        List<UserDto> userDtoList = userService.findUsers(10, 10);
+
+        assertEquals(1, userDtoList.size());
+        assertEquals(user.getId(), userDtoList.get(0).getId());
+    }
+
+    @Test
+    void findUsersAfterTest() {
+        when(userRepository.findAllAfter(5L, PageRequest.of(0, 10))).thenReturn(List.of(user));
+
+        List<UserDto> userDtoList = userService.findUsersAfter(PageCursor.of(5L).encode(), 10);
+
+        assertEquals(1, userDtoList.size());
+        assertEquals(user.getEmail(), userDtoList.get(0).getEmail());
+    }
+
+    @Test
+    void streamAllUsersTest() {
+        when(userRepository.streamAll()).thenReturn(Stream.of(UserMapper.toUserDto(user)));
+        List<UserDto> userDtoList = new ArrayList<>();
+
+        userService.streamAllUsers(userDtoList::add);
+
+        assertEquals(List.of(UserMapper.toUserDto(user)), userDtoList);
+    }
+
     @Test
     void addUserTest() {
         when(userRepository.save(user))
@@ -80,6 +138,7 @@ public class UserServiceTest {
         assertEquals(user.getName(), userDto.getName());
         assertEquals(user.getEmail(), userDto.getEmail());
         verify(userRepository, times(1)).save(any());
+        verify(userRepository, times(1)).existsByEmail(user.getEmail());
     }
 
     @Test
@@ -102,7 +161,7 @@ public class UserServiceTest {
     void updateUserTest() {
         Long userId = user.getId();
         when(userRepository.save(user)).thenReturn(user);
-        when(valid.checkUser(userId)).thenReturn(user);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
         UserDto userDto = userService.updateUser(userId, UserMapper.toUserDto(user));
 
@@ -111,13 +170,14 @@ public class UserServiceTest {
         assertEquals(user.getName(), userDto.getName());
         assertEquals(user.getEmail(), userDto.getEmail());
         verify(userRepository, times(1)).save(any());
+        verify(valid, times(1)).evictUser(userId);
     }
 
     @Test
     void updateUserWithEmptyName() {
         Long userId = user.getId();
         user.setName("");
-        when(valid.checkUser(userId)).thenReturn(user);
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
 
         assertThrows(NullPointerException.class,
                 () -> userService.updateUser(userId, UserMapper.toUserDto(user)));
@@ -126,9 +186,143 @@ public class UserServiceTest {
     @Test
     void deleteUserTest() {
         Long userId = user.getId();
+        when(itemRepository.findIdsByOwnerId(userId)).thenReturn(List.of(3L));
 
         userService.deleteUser(userId);
 
         verify(userRepository, times(1)).deleteById(anyLong());
+        verify(itemSearchIndex, times(1)).removeByOwner(userId);
+        verify(itemBookingIndex, times(1)).evictUser(userId, List.of(3L));
+        verify(valid, times(1)).evictUser(userId);
+        verify(valid, times(1)).evictItemsByOwner(userId);
+    }
+
+    @Test
+    void addUserWithTakenEmail() {
+        when(userRepository.existsByEmail(user.getEmail())).thenReturn(true);
+
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.addUser(UserMapper.toUserDto(new User(null, "John", user.getEmail()))));
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void updateUserWithTakenEmail() {
+        Long userId = user.getId();
+        String email = "other@mail.com";
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.existsByEmail(email)).thenReturn(true);
+
+        assertThrows(EmailAlreadyExistsException.class,
+                () -> userService.updateUser(userId, new UserDto(null, null, email)));
+        verify(userRepository, never()).save(any());
+        verify(valid, times(1)).evictUser(userId);
+    }
+
+    @Test
+    void updateUserWithNewEmail() {
+        Long userId = user.getId();
+        String email = "other@mail.com";
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+        when(userRepository.save(user)).thenReturn(user);
+
+        UserDto userDto = userService.updateUser(userId, new UserDto(null, null, email));
+
+        assertEquals(email, userDto.getEmail());
+        verify(userRepository, times(1)).existsByEmail(email);
+    }
+
+    @Test
+    void addUsers() {
+        when(userRepository.findExistingEmails(any())).thenReturn(List.of("taken@mail.com"));
+        when(userRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.get(0).setId(1L);
+            return users;
+        });
+        List<UserDto> users = List.of(
+                new UserDto(null, "John", "john@mail.com"),
+                new UserDto(null, "Taken", "taken@mail.com"),
+                new UserDto(null, "Twin", "john@mail.com"),
+                new UserDto(null, "NoAt", "mail.com"),
+                new UserDto(null, " ", "blank@mail.com"));
+
+        List<BatchRowResult> results = new ArrayList<>();
+        userService.addUsers(users.iterator(), results::add);
+
+        assertEquals(List.of(201, 409, 409, 400, 400), results.stream().map(BatchRowResult::getStatus)
+                .collect(Collectors.toList()));
+        assertEquals(1L, results.get(0).getId());
+        verify(userRepository, times(1)).findExistingEmails(any());
+        verify(userRepository, never()).save(any());
+    }
+
+    @Test
+    void addUsersWhenChunkConflicts() {
+        when(userRepository.insertAll(any())).thenThrow(new DataIntegrityViolationException("UQ_USER_EMAIL"));
+        when(userRepository.save(any()))
+                .thenAnswer(invocation -> {
+                    User saved = invocation.getArgument(0);
+                    saved.setId(2L);
+                    return saved;
+                })
+                .thenThrow(new DataIntegrityViolationException("UQ_USER_EMAIL"));
+        List<UserDto> users = List.of(
+                new UserDto(null, "John", "john@mail.com"),
+                new UserDto(null, "Alex", "alex@mail.com"));
+
+        List<BatchRowResult> results = new ArrayList<>();
+        userService.addUsers(users.iterator(), results::add);
+
+        assertEquals(List.of(201, 409), results.stream().map(BatchRowResult::getStatus)
+                .collect(Collectors.toList()));
+        assertEquals(2L, results.get(0).getId());
+        verify(userRepository, times(2)).save(any());
+    }
+
+    @Test
+    void addUsersEmitsResultsAfterEachChunk() {
+        when(userRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.forEach(user -> user.setId((long) user.getName().length()));
+            return users;
+        });
+        List<BatchRowResult> results = new ArrayList<>();
+        Iterator<UserDto> users = IntStream.range(0, 600)
+                .mapToObj(i -> {
+                    if (i == 500) {
+                        assertEquals(500, results.size());
+                    }
+                    return new UserDto(null, "User " + i, "user" + i + "@mail.com");
+                })
+                .iterator();
+
+        userService.addUsers(users, results::add);
+
+        assertEquals(600, results.size());
+        assertEquals(599, results.get(599).getRow());
+        verify(userRepository, times(2)).insertAll(any());
+    }
+
+    @Test
+    void addUsersWithMalformedArray() {
+        when(userRepository.insertAll(any())).thenAnswer(invocation -> {
+            List<User> users = invocation.getArgument(0);
+            users.get(0).setId(1L);
+            return users;
+        });
+        String body = "[{\"name\": \"John\", \"email\": \"john@mail.com\"}, {\"name\": ]";
+        Iterator<UserDto> users = new JsonArrayIterator<>(
+                new ObjectMapper().registerModule(new ParameterNamesModule()).readerFor(UserDto.class),
+                new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)));
+
+        List<BatchRowResult> results = new ArrayList<>();
+        userService.addUsers(users, results::add);
+
+        assertEquals(2, results.size());
+        assertEquals(BatchRowResult.created(0, 1L), results.get(0));
+        assertEquals(1, results.get(1).getRow());
+        assertEquals(400, results.get(1).getStatus());
+        assertNotNull(results.get(1).getError());
     }
 }
@@ -1,8 +1,10 @@
 package ru.practicum.shareit.validation;
 
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import ru.practicum.shareit.exception.NotFoundException;
@@ -12,6 +14,7 @@ import ru.practicum.shareit.request.model.ItemRequest;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 
+import java.time.Duration;
 import java.util.Optional;
 
 import static org.junit.jupiter.api.Assertions.*;
@@ -24,7 +27,7 @@ public class ValidTest {
     UserRepository userRepository;
     @Mock
     ItemRepository itemRepository;
-    @InjectMocks
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
     private Valid valid;
 
     private final User user = new User(1L, "Алексей", "alexey.timoshenko@mail.com");
@@ -32,6 +35,11 @@ public class ValidTest {
             new ItemRequest());
     private final long userId = 1L;
 
+    @BeforeEach
+    void setUp() {
+        valid = new Valid(userRepository, itemRepository, meterRegistry, 100, Duration.ofMinutes(5));
+    }
+
     @Test
     void checkUser_returnUser() {
         when(userRepository.findById(any())).thenReturn(Optional.of(user));
@@ -46,7 +54,7 @@ public class ValidTest {
 
     @Test
     void checkUser_returnNotFoundException() {
-        when(userRepository.findById(any())).thenThrow(NotFoundException.class);
+        when(userRepository.findById(any())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
                 () -> valid.checkUser(userId));
@@ -54,7 +62,7 @@ public class ValidTest {
 
     @Test
     void checkItem_returnItem() {
-        when(itemRepository.findById(item.getId())).thenReturn(Optional.of(item));
+        when(itemRepository.findWithOwnerById(item.getId())).thenReturn(Optional.of(item));
 
         Item actualItem = valid.checkItem(item.getId());
 
@@ -66,10 +74,44 @@ public class ValidTest {
 
     @Test
     void checkItem_returnNotFoundException() {
-        when(itemRepository.findById(any())).thenThrow(NotFoundException.class);
+        when(itemRepository.findWithOwnerById(anyLong())).thenReturn(Optional.empty());
 
         assertThrows(NotFoundException.class,
                 () -> valid.checkItem(1L));
     }
 
+    @Test
+    void checkUser_cachedUntilEvicted() {
+        when(userRepository.findById(userId)).thenReturn(Optional.of(user));
+
+        valid.checkUser(userId);
+        valid.checkUser(userId);
+        valid.evictUser(userId);
+        valid.checkUser(userId);
+
+        verify(userRepository, times(2)).findById(userId);
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "users").tag("result", "hit")
+                .functionCounter().count());
+    }
+
+    @Test
+    void checkUser_notFoundIsNotCached() {
+        when(userRepository.findById(userId)).thenReturn(Optional.empty());
+
+        assertThrows(NotFoundException.class, () -> valid.checkUser(userId));
+        assertThrows(NotFoundException.class, () -> valid.checkUser(userId));
+
+        verify(userRepository, times(2)).findById(userId);
+    }
+
+    @Test
+    void evictItemsByOwner() {
+        when(itemRepository.findWithOwnerById(item.getId())).thenReturn(Optional.of(item));
+
+        valid.checkItem(item.getId());
+        valid.evictItemsByOwner(user.getId());
+        valid.checkItem(item.getId());
+
+        verify(itemRepository, times(2)).findWithOwnerById(item.getId());
+    }
 }